@@ -1,36 +1,203 @@
 package com.example.hybridsearchspringboot.config;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import co.elastic.clients.transport.ElasticsearchTransport;
 import co.elastic.clients.transport.rest_client.RestClientTransport;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.http.HttpHost;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.elasticsearch.client.NodeSelector;
 import org.elasticsearch.client.RestClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.Arrays;
+
+/**
+ * Elasticsearch 传输层
+ * <p>
+ * 这里定义的 RestClient、传输层和客户端会让 Spring Boot 的自动配置让位，Spring Data 的
+ * ElasticsearchTemplate 也基于这里的 ElasticsearchClient 创建，全应用共用同一个连接池。
+ * 默认连接池每个节点只有 10 个连接，并发检索时请求会排队等待连接，因此连接数、保活、压缩和超时都改为可配置。
+ * 支持配置多个节点并按需嗅探集群，请求在节点间轮询，跳过专用主节点和延迟明显偏高的节点。
+ */
+@Slf4j
 @Configuration
 public class ElasticsearchConfig {
 
-    @Value("${elasticsearch.host}")
-    private String host;
+    /**
+     * 初始节点列表，逗号分隔的 scheme://host:port；未配置时沿用单节点的 host、port、scheme
+     */
+    @Value("${elasticsearch.hosts:${elasticsearch.scheme:http}://${elasticsearch.host:localhost}:${elasticsearch.port:9200}}")
+    private String[] hosts;
+
+    /**
+     * 是否定期嗅探集群节点
+     */
+    @Value("${elasticsearch.sniff.enabled:false}")
+    private boolean sniffEnabled;
+
+    @Value("${elasticsearch.sniff.interval-ms:300000}")
+    private long sniffIntervalMs;
+
+    /**
+     * 节点请求失败后多久触发一次嗅探
+     */
+    @Value("${elasticsearch.sniff.after-failure-delay-ms:60000}")
+    private long sniffAfterFailureDelayMs;
+
+    /**
+     * 新样本在节点延迟 EWMA 中的权重
+     */
+    @Value("${elasticsearch.node-selector.latency-alpha:0.3}")
+    private double latencyAlpha;
+
+    /**
+     * 节点延迟超过最快节点的倍数后暂时跳过
+     */
+    @Value("${elasticsearch.node-selector.slow-factor:3.0}")
+    private double slowFactor;
+
+    /**
+     * 被跳过的慢节点多久后放行一次探测请求
+     */
+    @Value("${elasticsearch.node-selector.recovery-ms:10000}")
+    private long recoveryMs;
 
-    @Value("${elasticsearch.port}")
-    private int port;
+    /**
+     * 每个节点的最大连接数
+     */
+    @Value("${elasticsearch.connection.max-per-route:50}")
+    private int maxConnPerRoute;
 
-    @Value("${elasticsearch.scheme}")
-    private String scheme;
+    /**
+     * 所有节点合计的最大连接数
+     */
+    @Value("${elasticsearch.connection.max-total:200}")
+    private int maxConnTotal;
+
+    /**
+     * 空闲连接的最长保活时间（毫秒），服务端通过 Keep-Alive 头返回更短的时间时以服务端为准
+     */
+    @Value("${elasticsearch.connection.keep-alive-ms:60000}")
+    private long keepAliveMs;
+
+    @Value("${elasticsearch.connection.connect-timeout-ms:1000}")
+    private int connectTimeoutMs;
+
+    @Value("${elasticsearch.connection.socket-timeout-ms:30000}")
+    private int socketTimeoutMs;
+
+    /**
+     * 从连接池借出连接的最长等待时间（毫秒），超时说明连接池过小
+     */
+    @Value("${elasticsearch.connection.request-timeout-ms:1000}")
+    private int connectionRequestTimeoutMs;
+
+    /**
+     * IO 线程数，0 表示与 CPU 核数相同
+     */
+    @Value("${elasticsearch.connection.io-threads:0}")
+    private int ioThreads;
+
+    /**
+     * 请求体 gzip 压缩并接受 gzip 响应，批量写入和向量查询的请求体压缩比较高
+     */
+    @Value("${elasticsearch.connection.compression:true}")
+    private boolean compression;
 
     @Bean
-    public ElasticsearchClient elasticsearchClient() {
-        RestClient restClient = RestClient.builder(
-            new HttpHost(host, port, scheme)
-        ).build();
+    public LatencyAwareNodeSelector latencyAwareNodeSelector() {
+        return new LatencyAwareNodeSelector(latencyAlpha, slowFactor, recoveryMs);
+    }
 
-        ElasticsearchTransport transport = new RestClientTransport(
-            restClient, new JacksonJsonpMapper());
+    @Bean(destroyMethod = "close")
+    public ElasticsearchNodeSniffer elasticsearchNodeSniffer() {
+        return new ElasticsearchNodeSniffer(sniffEnabled, sniffIntervalMs, sniffAfterFailureDelayMs,
+            parseHosts()[0].getSchemeName());
+    }
+
+    /**
+     * 请求在节点间轮询，先跳过专用主节点，再跳过延迟明显偏高的节点
+     */
+    @Bean(destroyMethod = "close")
+    public RestClient restClient(LatencyAwareNodeSelector latencySelector, ElasticsearchNodeSniffer sniffer) {
+        HttpHost[] nodes = parseHosts();
+        int threads = ioThreads > 0 ? ioThreads : Runtime.getRuntime().availableProcessors();
+        log.info("ES 节点: {}，嗅探: {}", Arrays.toString(nodes), sniffEnabled);
+        log.info("ES 连接池: 每节点 {}，总计 {}，IO 线程 {}，压缩: {}", maxConnPerRoute, maxConnTotal, threads, compression);
+        RestClient restClient = RestClient.builder(nodes)
+            .setNodeSelector(candidates -> {
+                NodeSelector.SKIP_DEDICATED_MASTERS.select(candidates);
+                latencySelector.select(candidates);
+            })
+            .setFailureListener(sniffer.failureListener())
+            .setCompressionEnabled(compression)
+            .setRequestConfigCallback(requestConfig -> requestConfig
+                .setConnectTimeout(connectTimeoutMs)
+                .setSocketTimeout(socketTimeoutMs)
+                .setConnectionRequestTimeout(connectionRequestTimeoutMs))
+            .setHttpClientConfigCallback(httpClient -> httpClient
+                .setMaxConnPerRoute(maxConnPerRoute)
+                .setMaxConnTotal(maxConnTotal)
+                .setKeepAliveStrategy(keepAliveStrategy())
+                .addInterceptorFirst(latencySelector.requestInterceptor())
+                .addInterceptorLast(latencySelector.responseInterceptor())
+                .setDefaultIOReactorConfig(IOReactorConfig.custom()
+                    .setIoThreadCount(threads)
+                    .setSoKeepAlive(true)
+                    .build()))
+            .build();
+        sniffer.start(restClient);
+        return restClient;
+    }
+
+    /**
+     * 未写端口时补上 ES 默认端口 9200，保证与嗅探结果和延迟统计中的节点地址一致
+     */
+    private HttpHost[] parseHosts() {
+        return Arrays.stream(hosts)
+            .map(String::trim)
+            .filter(h -> !h.isEmpty())
+            .map(HttpHost::create)
+            .map(h -> h.getPort() < 0 ? new HttpHost(h.getHostName(), 9200, h.getSchemeName()) : h)
+            .toArray(HttpHost[]::new);
+    }
+
+    /**
+     * 服务端没有返回 Keep-Alive 头时默认永久保活，中间的负载均衡器先断开空闲连接后，
+     * 下一次复用该连接的请求会失败，因此给保活时间设置上限
+     */
+    private ConnectionKeepAliveStrategy keepAliveStrategy() {
+        return (response, context) -> {
+            long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAliveMs) : keepAliveMs;
+        };
+    }
 
+    /**
+     * 同步和异步客户端共用一个传输层及其连接池
+     */
+    @Bean
+    public ElasticsearchTransport elasticsearchTransport(RestClient restClient) {
+        return new RestClientTransport(restClient, new JacksonJsonpMapper());
+    }
+
+    @Bean
+    public ElasticsearchClient elasticsearchClient(ElasticsearchTransport transport) {
         return new ElasticsearchClient(transport);
     }
-} 
\ No newline at end of file
+
+    /**
+     * 异步客户端，请求在 HTTP 客户端的 IO 线程上完成，不占用调用线程
+     */
+    @Bean
+    public ElasticsearchAsyncClient elasticsearchAsyncClient(ElasticsearchTransport transport) {
+        return new ElasticsearchAsyncClient(transport);
+    }
+}
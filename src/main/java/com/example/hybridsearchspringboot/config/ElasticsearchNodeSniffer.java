@@ -0,0 +1,170 @@
+package com.example.hybridsearchspringboot.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.Node;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ES 节点嗅探
+ * <p>
+ * 定期通过 _nodes/http 获取集群中开启 HTTP 的节点及其角色，替换 RestClient 的节点列表，
+ * 节点扩缩容后无需改配置；节点请求失败时提前触发一次嗅探。角色信息供
+ * {@link org.elasticsearch.client.NodeSelector#SKIP_DEDICATED_MASTERS} 跳过专用主节点。
+ * 实现与官方 elasticsearch-rest-client-sniffer 相同，省去额外依赖。
+ */
+@Slf4j
+public class ElasticsearchNodeSniffer implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final boolean enabled;
+    private final long intervalMs;
+    private final long afterFailureDelayMs;
+    private final String scheme;
+    private final AtomicBoolean sniffing = new AtomicBoolean();
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> next;
+    private RestClient restClient;
+
+    /**
+     * @param enabled             是否开启嗅探，关闭时只使用配置的节点
+     * @param intervalMs          定期嗅探间隔
+     * @param afterFailureDelayMs 节点失败后多久触发嗅探
+     * @param scheme              嗅探到的节点使用的协议
+     */
+    public ElasticsearchNodeSniffer(boolean enabled, long intervalMs, long afterFailureDelayMs, String scheme) {
+        this.enabled = enabled;
+        this.intervalMs = intervalMs;
+        this.afterFailureDelayMs = afterFailureDelayMs;
+        this.scheme = scheme;
+    }
+
+    /**
+     * 节点失败时提前嗅探，在构建 RestClient 时注册
+     */
+    public RestClient.FailureListener failureListener() {
+        return new RestClient.FailureListener() {
+            @Override
+            public void onFailure(Node node) {
+                log.warn("ES 节点请求失败: {}", node.getHost());
+                schedule(afterFailureDelayMs);
+            }
+        };
+    }
+
+    /**
+     * 立即嗅探一次并开始定期嗅探
+     */
+    public synchronized void start(RestClient restClient) {
+        if (!enabled) {
+            return;
+        }
+        this.restClient = restClient;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "es-sniffer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        schedule(0);
+    }
+
+    private synchronized void schedule(long delayMs) {
+        if (scheduler == null || scheduler.isShutdown()) {
+            return;
+        }
+        if (next != null) {
+            next.cancel(false);
+        }
+        next = scheduler.schedule(this::sniffAndReschedule, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void sniffAndReschedule() {
+        try {
+            sniff();
+        } catch (Exception e) {
+            log.warn("ES 节点嗅探失败，沿用当前节点列表: {}", e.getMessage());
+        } finally {
+            schedule(intervalMs);
+        }
+    }
+
+    void sniff() throws Exception {
+        if (!sniffing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Request request = new Request("GET", "/_nodes/http");
+            request.addParameter("timeout", "5s");
+            Response response = restClient.performRequest(request);
+            List<Node> nodes;
+            try (InputStream body = response.getEntity().getContent()) {
+                nodes = parseNodes(MAPPER.readTree(body), scheme);
+            }
+            if (nodes.isEmpty()) {
+                log.warn("ES 节点嗅探没有返回开启 HTTP 的节点，沿用当前节点列表");
+                return;
+            }
+            restClient.setNodes(nodes);
+            log.debug("ES 节点嗅探完成，节点数: {}", nodes.size());
+        } finally {
+            sniffing.set(false);
+        }
+    }
+
+    /**
+     * 解析 _nodes/http 响应，publish_address 形如 ip:port 或 hostname/ip:port，有主机名时优先使用主机名
+     */
+    static List<Node> parseNodes(JsonNode root, String scheme) {
+        List<Node> nodes = new ArrayList<>();
+        for (Iterator<JsonNode> it = root.path("nodes").elements(); it.hasNext(); ) {
+            JsonNode info = it.next();
+            String address = info.path("http").path("publish_address").asText("");
+            if (address.isEmpty()) {
+                continue;
+            }
+            int slash = address.indexOf('/');
+            if (slash >= 0) {
+                int colon = address.lastIndexOf(':');
+                String hostname = address.substring(0, slash);
+                address = hostname.isEmpty() ? address.substring(slash + 1) : hostname + address.substring(colon);
+            }
+            HttpHost host = HttpHost.create(scheme + "://" + address);
+
+            Set<String> roles = new HashSet<>();
+            info.path("roles").forEach(role -> roles.add(role.asText()));
+            Map<String, List<String>> attributes = new HashMap<>();
+            info.path("attributes").fields().forEachRemaining(attribute ->
+                attributes.put(attribute.getKey(), List.of(attribute.getValue().asText())));
+
+            nodes.add(new Node(host, null, info.path("name").asText(null), info.path("version").asText(null),
+                new Node.Roles(roles), attributes));
+        }
+        return nodes;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
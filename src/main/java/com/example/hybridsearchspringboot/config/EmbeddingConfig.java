@@ -0,0 +1,109 @@
+package com.example.hybridsearchspringboot.config;
+
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 向量化相关配置
+ */
+@Configuration
+@Data
+public class EmbeddingConfig {
+
+    /**
+     * 是否启用微批合并，关闭时每个请求直接调用模型
+     */
+    @Value("${embedding.batch.enabled:true}")
+    private boolean batchEnabled;
+
+    /**
+     * 单个批次最多合并的文本数
+     */
+    @Value("${embedding.batch.max-size:16}")
+    private int batchMaxSize;
+
+    /**
+     * 收到第一个请求后最多等待多久再发车（毫秒）
+     */
+    @Value("${embedding.batch.max-wait-ms:5}")
+    private long batchMaxWaitMs;
+
+    /**
+     * 等待合并的请求队列容量，队列满时直接拒绝
+     */
+    @Value("${embedding.batch.queue-capacity:1024}")
+    private int batchQueueCapacity;
+
+    /**
+     * 批处理工作线程数，默认与推理槽位数一致
+     */
+    @Value("${embedding.batch.workers:${embedding.pool.size:2}}")
+    private int batchWorkers;
+
+    /**
+     * 单个批次的 token 总数上限（批大小 × 批内最长序列）
+     */
+    @Value("${embedding.batch.max-tokens:4096}")
+    private int batchMaxTokens;
+
+    /**
+     * 模型输入序列长度硬上限，超出部分截断
+     */
+    @Value("${embedding.model.max-sequence-length:128}")
+    private int maxSequenceLength;
+
+    /**
+     * 模型精度版本：fp32 / int8 / fp16
+     */
+    @Value("${embedding.model.variant:fp32}")
+    private String modelVariant;
+
+    /**
+     * 非 FP32 版本启动时是否与 FP32 模型对比精度
+     */
+    @Value("${embedding.model.accuracy-check.enabled:true}")
+    private boolean accuracyCheckEnabled;
+
+    /**
+     * 精度校验要求的最低平均余弦相似度
+     */
+    @Value("${embedding.model.accuracy-check.min-cosine:0.98}")
+    private double accuracyMinCosine;
+
+    /**
+     * 精度校验要求的最低 top-k 召回重合率
+     */
+    @Value("${embedding.model.accuracy-check.min-recall:0.9}")
+    private double accuracyMinRecall;
+
+    /**
+     * 是否缓存查询向量
+     */
+    @Value("${embedding.cache.enabled:true}")
+    private boolean cacheEnabled;
+
+    /**
+     * 查询向量缓存的最大条目数，超出后淘汰最久未访问的条目
+     */
+    @Value("${embedding.cache.max-size:10000}")
+    private int cacheMaxSize;
+
+    /**
+     * 查询向量缓存条目的存活时间（秒），从写入时开始计算
+     */
+    @Value("${embedding.cache.ttl-seconds:3600}")
+    private long cacheTtlSeconds;
+
+    /**
+     * 共享会话上可同时执行的推理数
+     */
+    @Value("${embedding.pool.size:2}")
+    private int poolSize;
+
+    /**
+     * 等待推理槽位的超时时间（毫秒），超时后请求直接失败
+     */
+    @Value("${embedding.pool.acquire-timeout-ms:2000}")
+    private long poolAcquireTimeoutMs;
+}
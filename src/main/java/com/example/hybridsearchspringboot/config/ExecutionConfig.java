@@ -0,0 +1,67 @@
+package com.example.hybridsearchspringboot.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 搜索链路执行模式
+ * <p>
+ * spring.threads.virtual.enabled 同时控制 Tomcat 请求线程和这里的搜索扇出线程：开启后每个请求、
+ * 每个并发步骤各占一个虚拟线程，等待 ES 和 LLM 时不占用平台线程；关闭时扇出步骤使用有界的平台线程池。
+ * ONNX 推理始终在固定大小的平台线程池上执行，原生调用不会钉住虚拟线程的载体线程。
+ */
+@Slf4j
+@Configuration
+public class ExecutionConfig {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    /**
+     * 平台线程模式下扇出线程池的大小
+     */
+    @Value("${search.execution.platform-threads:64}")
+    private int platformThreads;
+
+    /**
+     * 平台线程模式下扇出任务的排队上限，超出后由调用线程自己执行
+     */
+    @Value("${search.execution.queue-capacity:1024}")
+    private int queueCapacity;
+
+    @Value("${embedding.pool.size:2}")
+    private int inferenceThreads;
+
+    /**
+     * 搜索扇出执行器，LLM 调用、ES 检索等阻塞步骤在这里并发执行
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService searchExecutor() {
+        if (virtualThreads) {
+            log.info("搜索执行模式: 虚拟线程");
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("search-", 0).factory());
+        }
+        log.info("搜索执行模式: 平台线程池，线程数: {}", platformThreads);
+        return new ThreadPoolExecutor(platformThreads, platformThreads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            Thread.ofPlatform().name("search-", 0).daemon(true).factory(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * ONNX 推理执行器，线程数与推理槽位一致
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService inferenceExecutor() {
+        return Executors.newFixedThreadPool(Math.max(1, inferenceThreads),
+            Thread.ofPlatform().name("onnx-inference-", 0).daemon(true).factory());
+    }
+}
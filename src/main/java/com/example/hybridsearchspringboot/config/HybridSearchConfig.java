@@ -0,0 +1,44 @@
+package com.example.hybridsearchspringboot.config;
+
+import com.example.hybridsearchspringboot.service.RankFusion;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 混合检索融合配置
+ */
+@Configuration
+@Data
+public class HybridSearchConfig {
+
+    /**
+     * 融合方式：RRF / WEIGHTED
+     */
+    @Value("${search.hybrid.fusion:RRF}")
+    private RankFusion.Method fusion;
+
+    /**
+     * 每一路召回的候选数，融合后再截取请求的条数
+     */
+    @Value("${search.hybrid.window-size:50}")
+    private int windowSize;
+
+    /**
+     * RRF 平滑常数，越大名次之间的差距越小
+     */
+    @Value("${search.hybrid.rank-constant:60}")
+    private int rankConstant;
+
+    /**
+     * 文本（BM25）一路的权重
+     */
+    @Value("${search.hybrid.text-weight:1.0}")
+    private double textWeight;
+
+    /**
+     * 向量（kNN）一路的权重
+     */
+    @Value("${search.hybrid.vector-weight:1.0}")
+    private double vectorWeight;
+}
@@ -0,0 +1,171 @@
+package com.example.hybridsearchspringboot.config;
+
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 索引配置
+ * <p>
+ * 分片、副本、刷新间隔和 HNSW 参数在创建索引时生效；重建时新版本索引以批量导入设置创建（关闭刷新、无副本），
+ * 导入完成、切换别名前恢复为在线服务的设置。
+ * <p>
+ * 检索和写入都通过别名 index.name 访问，全量重建时写入带版本号的新索引，准备就绪后原子切换别名。
+ */
+@Configuration
+@Data
+public class IndexConfig {
+
+    /**
+     * 索引别名，实际索引名为 别名_v时间戳（精确到毫秒）
+     */
+    @Value("${index.name:new_movies_index}")
+    private String name;
+
+    /**
+     * 保留的索引版本数（含当前版本），多出的旧版本在切换后删除，保留的旧版本可用于回滚
+     */
+    @Value("${index.keep-versions:2}")
+    private int keepVersions;
+
+    /**
+     * 切换前将新索引合并到的段数，0 表示不合并
+     */
+    @Value("${index.swap.force-merge-segments:1}")
+    private int forceMergeSegments;
+
+    /**
+     * 切换前等待副本分配完成的最长时间（毫秒）
+     */
+    @Value("${index.swap.health-timeout-ms:60000}")
+    private long swapHealthTimeoutMs;
+
+    /**
+     * 重建时允许的失败文档数（推理失败和写入死信），超过时不切换别名
+     */
+    @Value("${index.swap.max-failed-docs:0}")
+    private long swapMaxFailedDocs;
+
+    /**
+     * 切换前在新索引上执行的预热查询
+     */
+    @Value("${index.swap.warmup-queries:}")
+    private String[] warmupQueries;
+
+    @Value("${index.swap.warmup-rounds:3}")
+    private int warmupRounds;
+
+    /**
+     * 主分片数，决定单个查询可并行的分片数和写入吞吐上限，创建后不可修改
+     */
+    @Value("${index.shards:3}")
+    private int shards;
+
+    /**
+     * 在线服务时的副本数
+     */
+    @Value("${index.replicas:1}")
+    private int replicas;
+
+    /**
+     * 在线服务时的刷新间隔，写入的文档最迟在该时间后可被检索
+     */
+    @Value("${index.refresh-interval:1s}")
+    private String refreshInterval;
+
+    @Value("${index.max-result-window:10000}")
+    private int maxResultWindow;
+
+    /**
+     * HNSW 图中每个节点的最大邻居数，越大召回越高、内存和构建耗时越高
+     */
+    @Value("${index.hnsw.m:16}")
+    private int hnswM;
+
+    /**
+     * 构建 HNSW 图时每个节点的候选数，越大图质量越高、写入越慢
+     */
+    @Value("${index.hnsw.ef-construction:100}")
+    private int hnswEfConstruction;
+
+    /**
+     * 重建期间新版本索引的刷新间隔，-1 表示关闭定时刷新
+     */
+    @Value("${index.bulk.refresh-interval:-1}")
+    private String bulkRefreshInterval;
+
+    /**
+     * 重建期间新版本索引的副本数，导入完成后再复制副本，避免每条文档写两遍
+     */
+    @Value("${index.bulk.replicas:0}")
+    private int bulkReplicas;
+
+    /**
+     * 增量导入：按内容指纹跳过未变文档，向量化字段和模型都未变的文档沿用已有向量，更换模型后自动重新推理
+     */
+    @Value("${index.bulk.incremental:true}")
+    private boolean incremental;
+
+    /**
+     * 导入时每次推理的文档数
+     */
+    @Value("${index.bulk.embed-batch-size:64}")
+    private int embedBatchSize;
+
+    /**
+     * 导入时并行推理的线程数，与推理槽位数相当即可占满 CPU
+     */
+    @Value("${index.bulk.embed-workers:2}")
+    private int embedWorkers;
+
+    /**
+     * 各阶段之间队列可容纳的批次数，队列满时上游阻塞
+     */
+    @Value("${index.bulk.queue-capacity:8}")
+    private int queueCapacity;
+
+    /**
+     * 单个 bulk 请求的最大文档数
+     */
+    @Value("${index.bulk.max-docs:500}")
+    private int bulkMaxDocs;
+
+    /**
+     * 单个 bulk 请求的最大估算字节数
+     */
+    @Value("${index.bulk.max-bytes:5242880}")
+    private long bulkMaxBytes;
+
+    /**
+     * 同时在途的 bulk 请求数
+     */
+    @Value("${index.bulk.max-in-flight:4}")
+    private int bulkMaxInFlight;
+
+    /**
+     * ES 拒绝写入时 bulk 批大小可降到的下限
+     */
+    @Value("${index.bulk.min-docs:50}")
+    private int bulkMinDocs;
+
+    /**
+     * 被拒绝文档的最大重试次数
+     */
+    @Value("${index.bulk.max-retries:5}")
+    private int bulkMaxRetries;
+
+    /**
+     * 首次重试的退避时间（毫秒），之后每次翻倍
+     */
+    @Value("${index.bulk.initial-backoff-ms:200}")
+    private long bulkInitialBackoffMs;
+
+    @Value("${index.bulk.max-backoff-ms:10000}")
+    private long bulkMaxBackoffMs;
+
+    /**
+     * 写入失败的文档记录到该 JSONL 文件，每行包含失败原因和原始文档
+     */
+    @Value("${index.bulk.dead-letter-path:logs/ingest-dead-letter.jsonl}")
+    private String deadLetterPath;
+}
@@ -0,0 +1,148 @@
+package com.example.hybridsearchspringboot.config;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.protocol.HttpContext;
+import org.elasticsearch.client.Node;
+import org.elasticsearch.client.NodeSelector;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按节点响应延迟选择 ES 节点
+ * <p>
+ * 通过 HTTP 拦截器记录每个节点从发出请求到收到响应头的耗时，按指数加权移动平均（EWMA）平滑。
+ * 选择节点时，EWMA 超过最快节点 slowFactor 倍的节点被跳过；慢节点超过 recoveryMs 没有新样本时重新放行一次，
+ * 避免节点恢复后因为没有流量而一直被排除。未采样过的节点视为正常。
+ * <p>
+ * 只采样检索请求（_search、_msearch、_knn_search）。bulk 写入、任务轮询和 wait_for_status 长轮询的耗时
+ * 取决于请求本身而不是节点负载，计入后处理这些请求的节点会被误判为慢节点。
+ */
+public class LatencyAwareNodeSelector implements NodeSelector {
+
+    private static final String START_ATTRIBUTE = LatencyAwareNodeSelector.class.getName() + ".start";
+
+    private static final List<String> SAMPLED_ENDPOINTS = List.of("_search", "_msearch", "_knn_search");
+
+    private final double alpha;
+    private final double slowFactor;
+    private final long recoveryNanos;
+    private final Map<HttpHost, Latency> latencies = new ConcurrentHashMap<>();
+
+    /**
+     * @param alpha      EWMA 中新样本的权重，越大对延迟变化越敏感
+     * @param slowFactor 延迟超过最快节点的倍数后视为慢节点
+     * @param recoveryMs 慢节点多久没有新样本后重新放行
+     */
+    public LatencyAwareNodeSelector(double alpha, double slowFactor, long recoveryMs) {
+        this.alpha = alpha;
+        this.slowFactor = slowFactor;
+        this.recoveryNanos = recoveryMs * 1_000_000L;
+    }
+
+    /**
+     * 检索请求发出前记录开始时间
+     */
+    public HttpRequestInterceptor requestInterceptor() {
+        return (request, context) -> {
+            if (isSampled(request.getRequestLine().getUri())) {
+                context.setAttribute(START_ATTRIBUTE, System.nanoTime());
+            } else {
+                context.removeAttribute(START_ATTRIBUTE);
+            }
+        };
+    }
+
+    /**
+     * 收到响应头后记录该节点的耗时
+     */
+    public HttpResponseInterceptor responseInterceptor() {
+        return (response, context) -> {
+            Object start = context.getAttribute(START_ATTRIBUTE);
+            HttpHost host = targetHost(context);
+            if (start instanceof Long startNanos && host != null) {
+                record(host, System.nanoTime() - startNanos);
+            }
+        };
+    }
+
+    /**
+     * 请求路径的最后一段是否为检索端点，如 /movies/_search?typed_keys=true、/_msearch
+     */
+    static boolean isSampled(String uri) {
+        int query = uri.indexOf('?');
+        String path = query >= 0 ? uri.substring(0, query) : uri;
+        if (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return SAMPLED_ENDPOINTS.contains(path.substring(path.lastIndexOf('/') + 1));
+    }
+
+    void record(HttpHost host, long elapsedNanos) {
+        latencies.computeIfAbsent(host, h -> new Latency()).update(elapsedNanos, alpha);
+    }
+
+    @Override
+    public void select(Iterable<Node> nodes) {
+        long now = System.nanoTime();
+        double fastest = Double.MAX_VALUE;
+        for (Node node : nodes) {
+            Latency latency = latencies.get(node.getHost());
+            if (latency != null) {
+                fastest = Math.min(fastest, latency.ewmaNanos);
+            }
+        }
+        if (fastest == Double.MAX_VALUE) {
+            return;
+        }
+
+        // 最快的节点本身不会被跳过，因此总能留下至少一个节点
+        double threshold = fastest * slowFactor;
+        for (Iterator<Node> it = nodes.iterator(); it.hasNext(); ) {
+            Latency latency = latencies.get(it.next().getHost());
+            if (latency == null || latency.ewmaNanos <= threshold) {
+                continue;
+            }
+            if (now - latency.updatedAt > recoveryNanos) {
+                // 放行一次探测请求，响应回来后按新样本重新判断
+                latency.updatedAt = now;
+                continue;
+            }
+            it.remove();
+        }
+    }
+
+    /**
+     * 各节点当前的平滑延迟（毫秒）
+     */
+    public Map<String, Double> snapshot() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        latencies.forEach((host, latency) -> result.put(host.toHostString(), latency.ewmaNanos / 1_000_000.0));
+        return result;
+    }
+
+    private static HttpHost targetHost(HttpContext context) {
+        return HttpClientContext.adapt(context).getTargetHost();
+    }
+
+    @Override
+    public String toString() {
+        return "LATENCY_AWARE";
+    }
+
+    private static final class Latency {
+        private volatile double ewmaNanos = -1;
+        private volatile long updatedAt;
+
+        private synchronized void update(long sampleNanos, double alpha) {
+            ewmaNanos = ewmaNanos < 0 ? sampleNanos : alpha * sampleNanos + (1 - alpha) * ewmaNanos;
+            updatedAt = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.hybridsearchspringboot.config;
+
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+/**
+ * ONNX Runtime 会话调优配置
+ */
+@Configuration
+@Data
+public class OnnxSessionConfig {
+
+    /**
+     * 单个算子内部并行线程数，0 表示按 CPU 核数自动计算
+     */
+    @Value("${embedding.onnx.intra-op-threads:0}")
+    private int intraOpThreads;
+
+    /**
+     * 算子间并行线程数，仅在 PARALLEL 执行模式下生效
+     */
+    @Value("${embedding.onnx.inter-op-threads:1}")
+    private int interOpThreads;
+
+    /**
+     * 执行模式：SEQUENTIAL / PARALLEL
+     */
+    @Value("${embedding.onnx.execution-mode:SEQUENTIAL}")
+    private OrtSession.SessionOptions.ExecutionMode executionMode;
+
+    /**
+     * 图优化级别：NO_OPT / BASIC_OPT / EXTENDED_OPT / ALL_OPT
+     */
+    @Value("${embedding.onnx.optimization-level:ALL_OPT}")
+    private OrtSession.SessionOptions.OptLevel optimizationLevel;
+
+    /**
+     * 是否启用内存复用规划，输入形状变化频繁时可关闭
+     */
+    @Value("${embedding.onnx.memory-pattern:true}")
+    private boolean memoryPattern;
+
+    /**
+     * 是否启用 CPU 内存池
+     */
+    @Value("${embedding.onnx.cpu-arena:true}")
+    private boolean cpuArena;
+
+    /**
+     * 优化后模型的保存路径，为空则不保存
+     */
+    @Value("${embedding.onnx.optimized-model-path:}")
+    private String optimizedModelPath;
+
+    /**
+     * 启动时按本机核数测试不同线程数，选出最快的配置
+     */
+    @Value("${embedding.onnx.auto-tune.enabled:false}")
+    private boolean autoTune;
+
+    /**
+     * 自动调优时每个候选配置的计时推理次数
+     */
+    @Value("${embedding.onnx.auto-tune.iterations:20}")
+    private int autoTuneIterations;
+
+    /**
+     * 按当前配置创建会话选项，调用方负责关闭
+     *
+     * @param concurrency 同时执行推理的线程数，自动计算线程数时按此均分 CPU 核
+     */
+    public OrtSession.SessionOptions createSessionOptions(int concurrency) throws OrtException {
+        return buildSessionOptions(resolveIntraOpThreads(concurrency), true);
+    }
+
+    /**
+     * 按指定的算子内线程数创建会话选项，其余配置不变，供自动调优使用
+     */
+    public OrtSession.SessionOptions createTuningSessionOptions(int intraThreads) throws OrtException {
+        return buildSessionOptions(intraThreads, false);
+    }
+
+    private OrtSession.SessionOptions buildSessionOptions(int intraThreads, boolean saveOptimizedModel) throws OrtException {
+        OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+        options.setIntraOpNumThreads(intraThreads);
+        options.setInterOpNumThreads(interOpThreads);
+        options.setExecutionMode(executionMode);
+        options.setOptimizationLevel(optimizationLevel);
+        options.setMemoryPatternOptimization(memoryPattern);
+        options.setCPUArenaAllocator(cpuArena);
+        if (saveOptimizedModel && StringUtils.hasText(optimizedModelPath)) {
+            options.setOptimizedModelFilePath(optimizedModelPath);
+        }
+        return options;
+    }
+
+    /**
+     * 计算实际使用的算子内线程数
+     */
+    public int resolveIntraOpThreads(int concurrency) {
+        if (intraOpThreads > 0) {
+            return intraOpThreads;
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        return Math.max(1, cores / Math.max(1, concurrency));
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.hybridsearchspringboot.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
+import org.springframework.data.elasticsearch.core.query.SourceFilter;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 各搜索接口返回的 _source 字段
+ * <p>
+ * includes 为空表示返回全部字段；text_vector 无论如何配置都会被排除。
+ */
+@Configuration
+@Data
+public class SearchSourceConfig {
+
+    public static final String VECTOR_FIELD = "text_vector";
+
+    @Value("${search.source.text.includes:aid,title,brief,actors,directors,tags,voiceTags,languages,vendor,channel,publishYear,completed,total,last,updateTime}")
+    private String[] textIncludes;
+
+    @Value("${search.source.text.excludes:content}")
+    private String[] textExcludes;
+
+    @Value("${search.source.vector.includes:aid,title,brief,actors,directors,tags,voiceTags,languages,vendor,channel,publishYear,completed,total,last,updateTime,sysTime,vPic,vPicMd5}")
+    private String[] vectorIncludes;
+
+    @Value("${search.source.vector.excludes:content}")
+    private String[] vectorExcludes;
+
+    @Value("${search.source.hybrid.includes:aid,title,brief,actors,directors,tags,languages,publishYear,vPic}")
+    private String[] hybridIncludes;
+
+    @Value("${search.source.hybrid.excludes:content}")
+    private String[] hybridExcludes;
+
+    private SourceFilter textSourceFilter;
+    private SourceFilter vectorSourceFilter;
+    private SourceFilter hybridSourceFilter;
+
+    @PostConstruct
+    public void init() {
+        textSourceFilter = sourceFilter(textIncludes, textExcludes);
+        vectorSourceFilter = sourceFilter(vectorIncludes, vectorExcludes);
+        hybridSourceFilter = sourceFilter(hybridIncludes, hybridExcludes);
+    }
+
+    private static SourceFilter sourceFilter(String[] includes, String[] excludes) {
+        Set<String> excluded = new LinkedHashSet<>();
+        Arrays.stream(excludes).filter(field -> !field.isBlank()).forEach(excluded::add);
+        excluded.add(VECTOR_FIELD);
+        String[] included = Arrays.stream(includes)
+            .filter(field -> !field.isBlank() && !excluded.contains(field))
+            .toArray(String[]::new);
+        return new FetchSourceFilter(included, excluded.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.hybridsearchspringboot.config;
+
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 向量检索配置
+ */
+@Configuration
+@Data
+public class VectorSearchConfig {
+
+    /**
+     * kNN 返回的最近邻数量
+     */
+    @Value("${search.vector.k:10}")
+    private int k;
+
+    /**
+     * 每个分片在 HNSW 图上搜索的候选数，越大召回越高、延迟越高，不能小于 k
+     */
+    @Value("${search.vector.num-candidates:100}")
+    private int numCandidates;
+
+    /**
+     * 使用 script_score 对全部文档精确计算相似度，仅用于召回对比和小数据量排查
+     */
+    @Value("${search.vector.exact:false}")
+    private boolean exact;
+}
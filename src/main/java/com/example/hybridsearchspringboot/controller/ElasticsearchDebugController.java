@@ -1,5 +1,6 @@
 package com.example.hybridsearchspringboot.controller;
 
+import com.example.hybridsearchspringboot.config.IndexConfig;
 import com.example.hybridsearchspringboot.service.ElasticsearchService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -22,7 +23,7 @@ public class ElasticsearchDebugController {
 
     private final ElasticsearchOperations elasticsearchOperations;
     private final ElasticsearchService elasticsearchService;
-    private static final String INDEX_NAME = "new_movies_index";
+    private final IndexConfig indexConfig;
 
     @PostMapping("/raw-query")
     public SearchHits<Map> executeRawQuery(@RequestBody String query) {
@@ -30,7 +31,7 @@ public class ElasticsearchDebugController {
         return elasticsearchOperations.search(
             new StringQuery(query),
             Map.class,
-            IndexCoordinates.of(INDEX_NAME)
+            IndexCoordinates.of(indexConfig.getName())
         );
     }
 
@@ -67,16 +68,20 @@ public class ElasticsearchDebugController {
     @GetMapping("/index-info")
     public Map<String, Object> getIndexInfo() {
         try {
-            boolean exists = elasticsearchOperations.indexOps(IndexCoordinates.of(INDEX_NAME))
+            // 别名背后的物理索引
+            String index = elasticsearchService.currentIndex();
+            boolean exists = elasticsearchOperations.indexOps(IndexCoordinates.of(index))
                 .exists();
             
-            Map<String, Object> indexSettings = elasticsearchOperations.indexOps(IndexCoordinates.of(INDEX_NAME))
+            Map<String, Object> indexSettings = elasticsearchOperations.indexOps(IndexCoordinates.of(index))
                 .getSettings();
             
-            Map<String, Object> indexMapping = elasticsearchOperations.indexOps(IndexCoordinates.of(INDEX_NAME))
+            Map<String, Object> indexMapping = elasticsearchOperations.indexOps(IndexCoordinates.of(index))
                 .getMapping();
             
             return Map.of(
+                "alias", indexConfig.getName(),
+                "index", index,
                 "exists", exists,
                 "settings", indexSettings,
                 "mapping", indexMapping
@@ -111,7 +116,7 @@ public class ElasticsearchDebugController {
             elasticsearchService.createIndex(recreateIndex);
             return Map.of(
                 "success", true,
-                "message", "索引初始化完成"
+                "message", recreateIndex ? "索引已用当前 mapping 重建并切换" : "索引初始化完成"
             );
         } catch (Exception e) {
             log.error("索引初始化失败", e);
@@ -127,10 +132,6 @@ public class ElasticsearchDebugController {
             @RequestParam(defaultValue = "false") boolean recreateIndex) {
         log.info("开始初始化测试数据");
         try {
-            // 总是重新创建索引以确保映射正确
-            elasticsearchService.createIndex(true);
-            log.info("索引重新创建完成");
-
             // 生成测试数据
             List<Map<String, Object>> testData = Arrays.asList(
                 createMovieData(
@@ -195,8 +196,8 @@ public class ElasticsearchDebugController {
                 )
             );
 
-            // 批量索引测试数据
-            elasticsearchService.bulkIndexDocuments(testData);
+            // 总是重建到新版本索引以确保映射正确，完成后切换别名
+            elasticsearchService.rebuildIndex(testData.iterator(), null);
 
             return Map.of(
                 "success", true,
@@ -0,0 +1,53 @@
+package com.example.hybridsearchspringboot.controller;
+
+import com.example.hybridsearchspringboot.model.ImportProgress;
+import com.example.hybridsearchspringboot.service.CatalogImportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 命令行导入，指定 --import.file 时启动后导入该文件并退出：
+ * <pre>
+ * java -jar hybrid-search-springboot.jar --spring.main.web-application-type=none \
+ *     --import.file=/data/movies.jsonl.gz [--import.offset=0] [--import.rebuild=false]
+ * </pre>
+ * 导入失败时以非零状态码退出，日志中给出续传偏移。--import.rebuild=true 时导入到新版本索引，完成后切换别名。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImportCommandRunner implements ApplicationRunner {
+
+    private final CatalogImportService catalogImportService;
+    private final ConfigurableApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        String file = option(args, "import.file", null);
+        if (file == null) {
+            return;
+        }
+        long offset = Long.parseLong(option(args, "import.offset", "0"));
+        boolean rebuild = Boolean.parseBoolean(option(args, "import.rebuild", "false"));
+
+        ImportProgress progress = catalogImportService.importFile(Path.of(file), offset, rebuild);
+        int exitCode = progress.status() == ImportProgress.Status.COMPLETED ? 0 : 1;
+        if (exitCode != 0) {
+            log.error("导入失败: {}，续传偏移: {}", progress.error(), progress.resumeOffset());
+        }
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+
+    private static String option(ApplicationArguments args, String name, String defaultValue) {
+        List<String> values = args.getOptionValues(name);
+        return values != null && !values.isEmpty() ? values.get(0) : defaultValue;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.hybridsearchspringboot.controller;
+
+import com.example.hybridsearchspringboot.model.ImportProgress;
+import com.example.hybridsearchspringboot.service.CatalogImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * 影视数据导入接口
+ * <p>
+ * 请求体导入在请求线程上同步执行，边接收边写入；本地文件导入在后台执行，通过 /status 查询进度。
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/import")
+@RequiredArgsConstructor
+public class ImportController {
+
+    private final CatalogImportService catalogImportService;
+
+    /**
+     * 导入请求体中的 JSONL 数据，支持 gzip
+     *
+     * @param offset   跳过的字节数，续传时取上次返回的 resumeOffset
+     * @param rebuild  是否导入到新版本索引，完成后切换别名
+     */
+    @PostMapping
+    public ResponseEntity<?> importBody(HttpServletRequest request,
+                                        @RequestParam(defaultValue = "0") long offset,
+                                        @RequestParam(defaultValue = "false") boolean rebuild) throws IOException {
+        try {
+            ImportProgress progress = catalogImportService.importStream("request", request.getInputStream(), offset,
+                rebuild);
+            return progress.status() == ImportProgress.Status.FAILED
+                ? ResponseEntity.internalServerError().body(progress)
+                : ResponseEntity.ok(progress);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * 在后台导入服务器本地的 JSONL 或 JSONL.gz 文件
+     *
+     * @param path 相对导入目录 import.directory 的路径，不能访问导入目录之外的文件
+     */
+    @PostMapping("/file")
+    public ResponseEntity<Map<String, Object>> importFile(@RequestParam String path,
+                                                          @RequestParam(defaultValue = "0") long offset,
+                                                          @RequestParam(defaultValue = "false") boolean rebuild) {
+        Path file;
+        try {
+            file = catalogImportService.resolveImportFile(path);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        if (rebuild && offset > 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "重建索引必须从头导入，不能指定起始偏移"));
+        }
+        if (catalogImportService.isRunning()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "已有导入任务在执行"));
+        }
+        Thread worker = new Thread(() -> {
+            try {
+                catalogImportService.importFile(file, offset, rebuild);
+            } catch (IllegalStateException e) {
+                log.warn("导入 {} 未执行: {}", path, e.getMessage());
+            }
+        }, "catalog-import");
+        worker.start();
+        return ResponseEntity.accepted().body(Map.of("message", "导入已开始", "path", path, "offset", offset,
+            "rebuild", rebuild));
+    }
+
+    @GetMapping("/status")
+    public ResponseEntity<ImportProgress> status() {
+        ImportProgress progress = catalogImportService.getProgress();
+        return progress != null ? ResponseEntity.ok(progress) : ResponseEntity.notFound().build();
+    }
+}
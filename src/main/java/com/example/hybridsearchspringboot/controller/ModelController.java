@@ -0,0 +1,56 @@
+package com.example.hybridsearchspringboot.controller;
+
+import com.example.hybridsearchspringboot.service.ModelHandle;
+import com.example.hybridsearchspringboot.service.ModelRegistry;
+import com.example.hybridsearchspringboot.service.ModelVariant;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/models")
+@RequiredArgsConstructor
+public class ModelController {
+
+    private final ModelRegistry modelRegistry;
+
+    @GetMapping
+    public List<Map<String, Object>> listModels() {
+        return modelRegistry.list().stream().map(ModelController::describe).toList();
+    }
+
+    /**
+     * 热更新模型，可通过 variant 参数切换精度版本，新版本校验通过后才替换
+     */
+    @PostMapping("/{name}/reload")
+    public ResponseEntity<Map<String, Object>> reload(@PathVariable String name,
+                                                      @RequestParam(required = false) String variant) {
+        try {
+            ModelVariant target = variant != null ? ModelVariant.from(variant) : null;
+            return ResponseEntity.ok(describe(modelRegistry.reload(name, target)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("模型 {} 热更新失败", name, e);
+            return ResponseEntity.internalServerError().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    private static Map<String, Object> describe(ModelHandle handle) {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("name", handle.getName());
+        info.put("version", handle.getVersion());
+        info.put("variant", handle.getVariant());
+        info.put("source", handle.getSource());
+        info.put("checksum", handle.getChecksum());
+        info.put("loadedAt", handle.getLoadedAt());
+        info.put("activeLeases", handle.getActiveLeases());
+        return info;
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
@@ -45,6 +46,21 @@ public class SearchController {
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    /**
+     * 异步混合检索，返回 CompletableFuture 后请求线程立即释放，结果就绪时再写回响应
+     */
+    @GetMapping(value = "/search/async")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> searchAsync(
+            @RequestParam String query,
+            @RequestParam(required = false, defaultValue = "10") int size) {
+        return searchService.hybridSearchAsync(query, size)
+            .thenApply(ResponseEntity::ok)
+            .exceptionally(e -> {
+                log.error("Error processing async search request", e);
+                return ResponseEntity.internalServerError().build();
+            });
+    }
 }
 
 @Data
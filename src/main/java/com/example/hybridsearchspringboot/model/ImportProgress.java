@@ -0,0 +1,30 @@
+package com.example.hybridsearchspringboot.model;
+
+/**
+ * 数据导入进度
+ * <p>
+ * 偏移量均为 JSONL 数据（gzip 文件为解压后）的字节偏移。resumeOffset 之前的文档都已处理完，
+ * 导入中断后从该偏移重新导入不会漏数据，之后的少量文档会被重复写入，按 aid 覆盖。
+ *
+ * @param source        数据来源
+ * @param status        导入状态
+ * @param startOffset   本次导入的起始偏移
+ * @param readOffset    已读取到的偏移
+ * @param resumeOffset  可安全续传的偏移
+ * @param documents     已读取的文档数
+ * @param completed     从起始偏移起连续处理完的文档数
+ * @param indexed       写入成功的文档数
+ * @param failed        失败的文档数
+ * @param elapsedMs     已耗时
+ * @param docsPerSecond 每秒处理的文档数
+ * @param mbPerSecond   每秒读取的数据量（MB）
+ * @param error         失败原因
+ */
+public record ImportProgress(String source, Status status, long startOffset, long readOffset, long resumeOffset,
+                             long documents, long completed, long indexed, long failed, long elapsedMs,
+                             double docsPerSecond, double mbPerSecond, String error) {
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.hybridsearchspringboot.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 搜索命中的影片，只包含 _source 过滤后返回的字段，未返回的字段为 null 且不参与序列化
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record MovieHit(
+    String id,
+    double score,
+    String aid,
+    String title,
+    String brief,
+    String content,
+    List<String> actors,
+    List<String> directors,
+    List<String> tags,
+    List<String> voiceTags,
+    List<String> languages,
+    String vendor,
+    String channel,
+    String publishYear,
+    Boolean completed,
+    Integer total,
+    Integer last,
+    String updateTime,
+    String sysTime,
+    String vPic,
+    String vPicMd5
+) {
+
+    public static MovieHit of(String id, double score, Map<String, Object> source) {
+        return new MovieHit(
+            id,
+            score,
+            string(source.get("aid")),
+            string(source.get("title")),
+            string(source.get("brief")),
+            string(source.get("content")),
+            strings(source.get("actors")),
+            strings(source.get("directors")),
+            strings(source.get("tags")),
+            strings(source.get("voiceTags")),
+            strings(source.get("languages")),
+            string(source.get("vendor")),
+            string(source.get("channel")),
+            string(source.get("publishYear")),
+            source.get("completed") instanceof Boolean b ? b : null,
+            integer(source.get("total")),
+            integer(source.get("last")),
+            string(source.get("updateTime")),
+            string(source.get("sysTime")),
+            string(source.get("vPic")),
+            string(source.get("vPicMd5"))
+        );
+    }
+
+    /**
+     * 替换分数，用于融合排序后的结果
+     */
+    public MovieHit withScore(double newScore) {
+        return new MovieHit(id, newScore, aid, title, brief, content, actors, directors, tags, voiceTags, languages,
+            vendor, channel, publishYear, completed, total, last, updateTime, sysTime, vPic, vPicMd5);
+    }
+
+    private static String string(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private static Integer integer(Object value) {
+        return value instanceof Number n ? n.intValue() : null;
+    }
+
+    private static List<String> strings(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof List<?> list) {
+            return list.stream().map(String::valueOf).toList();
+        }
+        // 单值字段在 _source 中可能不是数组
+        return List.of(value.toString());
+    }
+}
@@ -10,6 +10,6 @@ import java.util.Map;
 public class SearchResult {
     private String query;
     private Map<String, Object> entitiesAndExpansions;
-    private List<Map<String, Object>> results;
+    private List<MovieHit> results;
     private String structuredResponse;
 } 
\ No newline at end of file
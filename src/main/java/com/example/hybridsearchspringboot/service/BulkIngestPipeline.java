@@ -0,0 +1,832 @@
+package com.example.hybridsearchspringboot.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.MgetResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetResponseItem;
+import co.elastic.clients.transport.TransportException;
+import com.example.hybridsearchspringboot.config.IndexConfig;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量导入流水线
+ * <p>
+ * 解析（调用线程）→ 批量推理（多个工作线程）→ 按文档数和字节数切分 bulk 请求（单个发送线程，多个请求同时在途），
+ * 各阶段之间用有界队列连接，下游跟不上时上游阻塞，内存占用与输入总量无关。
+ * <p>
+ * 开启增量导入时，推理前按 id 批量查询已有文档的指纹（{@link DocumentFingerprint}）：内容和模型都未变的文档直接跳过；
+ * 只有元数据变化、向量化字段和模型未变的文档不再推理，以部分更新写入，保留索引中已有的向量。
+ * 重建到新版本索引时目标索引为空，改为从在线别名查询指纹和向量，可沿用的向量复制到新文档中整篇写入。
+ * <p>
+ * bulk 结果逐条检查：被 429 拒绝的文档指数退避后单独重试，同时批大小减半，写入顺利后再逐步恢复；
+ * 其他错误、重试耗尽和推理失败的文档写入死信文件（JSONL），不影响同批其他文档。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BulkIngestPipeline {
+
+    /**
+     * 队列结束标记，按引用比较
+     */
+    private static final Batch END = new Batch(-1, List.of());
+
+    /**
+     * 中止导入时等待在途 bulk 请求返回的最长时间，略大于 ES 客户端的 socket 超时
+     */
+    private static final long ABORT_DRAIN_TIMEOUT_MS = 60_000;
+
+    private final ModelLoader modelLoader;
+    private final ElasticsearchClient elasticsearchClient;
+    private final ElasticsearchAsyncClient elasticsearchAsyncClient;
+    private final IndexConfig indexConfig;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 导入结果
+     *
+     * @param documents 读取的文档数
+     * @param indexed   写入成功的文档数，包括部分更新
+     * @param reused    沿用已有向量、没有重新推理的文档数
+     * @param skipped   内容未变、没有写入的文档数
+     * @param failed    推理或写入失败的文档数
+     * @param elapsedMs 耗时
+     */
+    public record Result(long documents, long indexed, long reused, long skipped, long failed, long elapsedMs) {
+    }
+
+    /**
+     * 文档的写入方式
+     */
+    private enum Action {
+        /**
+         * 整篇写入，向量重新推理
+         */
+        INDEX,
+        /**
+         * 部分更新，保留已有向量
+         */
+        UPDATE,
+        /**
+         * 整篇写入，向量从在线索引复制
+         */
+        COPY,
+        /**
+         * 内容未变，不写入
+         */
+        SKIP
+    }
+
+    /**
+     * 索引中已有文档的指纹，复制向量时同时读取向量
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private record Fingerprint(@JsonProperty(DocumentFingerprint.EMBEDDING_HASH) String embeddingHash,
+                               @JsonProperty(DocumentFingerprint.CONTENT_HASH) String contentHash,
+                               @JsonProperty(DocumentFingerprint.VECTOR_FIELD) float[] vector) {
+    }
+
+    /**
+     * bulk 请求中的一条文档，写入成功或失败后结算一次，之后的重复结算被忽略
+     */
+    private static final class Item {
+        private final Map<String, Object> doc;
+        private final Action action;
+        private final Batch owner;
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private Item(Map<String, Object> doc, Action action, Batch owner) {
+            this.doc = doc;
+            this.action = action;
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * 导入进度回调，在 bulk 响应线程上调用，实现不能阻塞
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param completed 从输入开头起连续处理完（成功或失败）的文档数，之前的文档都不会再被写入
+         * @param indexed   写入成功的文档数
+         * @param failed    失败的文档数
+         */
+        void onProgress(long completed, long indexed, long failed);
+    }
+
+    public Result ingest(String index, Iterator<Map<String, Object>> documents) {
+        return ingest(index, documents, null);
+    }
+
+    /**
+     * 将文档流导入指定索引，全部写入完成后返回
+     *
+     * @param index     目标索引
+     * @param documents 文档流，在调用线程上逐条读取
+     * @param listener  进度回调，可为 null
+     */
+    public Result ingest(String index, Iterator<Map<String, Object>> documents, ProgressListener listener) {
+        return ingest(index, index, documents, listener);
+    }
+
+    /**
+     * 将文档流导入新建的索引，从 source 查询已有指纹，可沿用的向量从 source 复制
+     *
+     * @param index  目标索引，重建中的新版本
+     * @param source 查询已有文档的索引或别名，为 null 时不查询，全部重新推理
+     */
+    public Result ingest(String index, String source, Iterator<Map<String, Object>> documents,
+                         ProgressListener listener) {
+        Run run = new Run(index, source, listener);
+        run.start();
+        try {
+            int batchSize = Math.max(1, indexConfig.getEmbedBatchSize());
+            List<Map<String, Object>> docs = new ArrayList<>(batchSize);
+            long sequence = 0;
+            while (documents.hasNext()) {
+                // 复制一份再写入指纹和向量，调用方传入的文档可以是不可变 Map
+                docs.add(new HashMap<>(documents.next()));
+                run.documents++;
+                if (docs.size() >= batchSize) {
+                    run.embedQueue.put(new Batch(sequence++, docs));
+                    docs = new ArrayList<>(batchSize);
+                }
+            }
+            if (!docs.isEmpty()) {
+                run.embedQueue.put(new Batch(sequence, docs));
+            }
+            return run.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.abort();
+            throw new RuntimeException("批量导入被中断", e);
+        } catch (RuntimeException e) {
+            run.abort();
+            throw e;
+        }
+    }
+
+    /**
+     * 一次推理的文档，所有文档写入结束后视为完成
+     */
+    private static final class Batch {
+        private final long sequence;
+        private final List<Map<String, Object>> docs;
+        private final Action[] actions;
+        private final AtomicInteger remaining;
+
+        private Batch(long sequence, List<Map<String, Object>> docs) {
+            this.sequence = sequence;
+            this.docs = docs;
+            this.actions = new Action[docs.size()];
+            Arrays.fill(actions, Action.INDEX);
+            this.remaining = new AtomicInteger(docs.size());
+        }
+    }
+
+    /**
+     * 一次导入的线程和队列
+     */
+    private final class Run {
+        private final String index;
+        /**
+         * 查询已有指纹的索引，为 null 时不查询；与目标索引不同时目标为空索引，可沿用的向量需要复制
+         */
+        private final String source;
+        private final boolean copyVectors;
+        private final ProgressListener listener;
+        private final long startedAt = System.currentTimeMillis();
+        private final BlockingQueue<Batch> embedQueue;
+        private final BlockingQueue<Batch> indexQueue;
+        private final Semaphore inFlight;
+        private final int maxInFlight;
+        private final List<Thread> embedWorkers = new ArrayList<>();
+        private final Thread indexer;
+        private final AtomicLong indexed = new AtomicLong();
+        private final AtomicLong reused = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong deadLettered = new AtomicLong();
+        private final AtomicInteger bulkDocLimit;
+        private final ScheduledExecutorService retryScheduler;
+        private BufferedWriter deadLetterWriter;
+        private boolean deadLettersClosed;
+        private volatile boolean aborted;
+        private long documents;
+
+        /**
+         * 多个推理线程和在途请求使批次乱序完成，已完成但前面还有未完成批次的先记在这里
+         */
+        private final Map<Long, Integer> completedOutOfOrder = new HashMap<>();
+        private long nextSequence;
+        private long completed;
+
+        private Run(String index, String source, ProgressListener listener) {
+            this.index = index;
+            this.source = indexConfig.isIncremental() ? source : null;
+            this.copyVectors = this.source != null && !this.source.equals(index);
+            this.listener = listener;
+            int capacity = Math.max(1, indexConfig.getQueueCapacity());
+            this.embedQueue = new ArrayBlockingQueue<>(capacity);
+            this.indexQueue = new ArrayBlockingQueue<>(capacity);
+            this.maxInFlight = Math.max(1, indexConfig.getBulkMaxInFlight());
+            this.inFlight = new Semaphore(maxInFlight);
+            for (int i = 0; i < Math.max(1, indexConfig.getEmbedWorkers()); i++) {
+                Thread worker = new Thread(this::runEmbedWorker, "ingest-embed-" + i);
+                worker.setDaemon(true);
+                embedWorkers.add(worker);
+            }
+            this.indexer = new Thread(this::runIndexer, "ingest-bulk");
+            this.indexer.setDaemon(true);
+            this.bulkDocLimit = new AtomicInteger(Math.max(1, indexConfig.getBulkMaxDocs()));
+            this.retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "ingest-retry");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        private void start() {
+            embedWorkers.forEach(Thread::start);
+            indexer.start();
+        }
+
+        /**
+         * 输入读完后通知各阶段收尾，等待最后一个 bulk 请求返回
+         */
+        private Result finish() throws InterruptedException {
+            for (int i = 0; i < embedWorkers.size(); i++) {
+                embedQueue.put(END);
+            }
+            for (Thread worker : embedWorkers) {
+                worker.join();
+            }
+            indexer.join();
+            retryScheduler.shutdown();
+            closeDeadLetters();
+            if (deadLettered.get() > 0) {
+                log.warn("{} 条文档写入失败，已记录到死信文件: {}", deadLettered.get(), indexConfig.getDeadLetterPath());
+            }
+            Result result = new Result(documents, indexed.get(), reused.get(), skipped.get(), failed.get(),
+                System.currentTimeMillis() - startedAt);
+            log.info("批量导入完成 - 索引: {}, 文档: {}, 成功: {}, 沿用向量: {}, 未变跳过: {}, 失败: {}, 耗时: {}ms",
+                index, result.documents(), result.indexed(), result.reused(), result.skipped(), result.failed(),
+                result.elapsedMs());
+            return result;
+        }
+
+        /**
+         * 中止导入：停止解析和推理，等待在途请求返回（待重试的文档不再发送，直接写入死信文件）后再关闭死信文件
+         */
+        private void abort() {
+            aborted = true;
+            embedWorkers.forEach(Thread::interrupt);
+            indexer.interrupt();
+            // 调用方可能处于中断状态，等待期间先清除，结束后恢复
+            boolean interrupted = Thread.interrupted();
+            try {
+                indexer.join(ABORT_DRAIN_TIMEOUT_MS);
+                if (inFlight.tryAcquire(maxInFlight, ABORT_DRAIN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    inFlight.release(maxInFlight);
+                } else {
+                    log.warn("中止导入时仍有 bulk 请求未返回，之后失败的文档不再写入死信文件");
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } finally {
+                retryScheduler.shutdownNow();
+                closeDeadLetters();
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void runEmbedWorker() {
+            try {
+                while (true) {
+                    Batch batch = embedQueue.take();
+                    if (batch == END) {
+                        indexQueue.put(END);
+                        return;
+                    }
+                    try {
+                        embed(batch);
+                    } catch (RuntimeException e) {
+                        // 整批推理失败时这一批写入死信文件，继续处理后续批次
+                        log.error("批量推理失败，跳过 {} 条文档", batch.docs.size(), e);
+                        failed.addAndGet(batch.docs.size());
+                        deadLettered.addAndGet(batch.docs.size());
+                        writeDeadLetters(batch.docs, 0, "推理失败: " + e.getMessage());
+                        complete(batch);
+                        continue;
+                    }
+                    indexQueue.put(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void embed(Batch batch) {
+            int size = batch.docs.size();
+            String[] texts = new String[size];
+            // 推理前读取模型标识：推理期间发生热更新时，新向量带着旧标识，下次导入会重新推理，而不会反过来沿用旧向量
+            String model = modelLoader.embeddingModelIdentity();
+            for (int i = 0; i < size; i++) {
+                Map<String, Object> doc = batch.docs.get(i);
+                texts[i] = embeddingText(doc);
+                doc.put(DocumentFingerprint.CONTENT_HASH, DocumentFingerprint.contentHash(doc));
+                doc.put(DocumentFingerprint.EMBEDDING_HASH, DocumentFingerprint.embeddingHash(model, texts[i]));
+            }
+
+            Map<String, Fingerprint> existing = source != null ? lookup(batch.docs) : Map.of();
+            List<Map<String, Object>> toEmbed = new ArrayList<>(size);
+            List<String> toEmbedTexts = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                Map<String, Object> doc = batch.docs.get(i);
+                Fingerprint previous = existing.get(String.valueOf(doc.get("aid")));
+                boolean sameVector = previous != null
+                    && Objects.equals(previous.embeddingHash(), doc.get(DocumentFingerprint.EMBEDDING_HASH));
+                if (copyVectors) {
+                    // 目标是空索引，只能整篇写入；已有向量可用时复制，否则重新推理
+                    if (sameVector && previous.vector() != null) {
+                        doc.put(DocumentFingerprint.VECTOR_FIELD, previous.vector());
+                        batch.actions[i] = Action.COPY;
+                    } else if (!texts[i].isEmpty()) {
+                        toEmbed.add(doc);
+                        toEmbedTexts.add(texts[i]);
+                    }
+                } else if (sameVector && Objects.equals(previous.contentHash(), doc.get(DocumentFingerprint.CONTENT_HASH))) {
+                    batch.actions[i] = Action.SKIP;
+                } else if (sameVector) {
+                    batch.actions[i] = Action.UPDATE;
+                } else if (!texts[i].isEmpty()) {
+                    toEmbed.add(doc);
+                    toEmbedTexts.add(texts[i]);
+                }
+            }
+            if (toEmbedTexts.isEmpty()) {
+                return;
+            }
+            List<float[]> vectors = modelLoader.textsToVectors(toEmbedTexts);
+            for (int i = 0; i < toEmbed.size(); i++) {
+                toEmbed.get(i).put(DocumentFingerprint.VECTOR_FIELD, vectors.get(i));
+            }
+        }
+
+        /**
+         * 批量查询已有文档的指纹，查询失败时按全部为新文档处理
+         */
+        private Map<String, Fingerprint> lookup(List<Map<String, Object>> docs) {
+            List<String> ids = docs.stream()
+                .map(doc -> doc.get("aid"))
+                .filter(Objects::nonNull)
+                .map(Object::toString)
+                .distinct()
+                .toList();
+            if (ids.isEmpty()) {
+                return Map.of();
+            }
+            List<String> fields = copyVectors
+                ? List.of(DocumentFingerprint.EMBEDDING_HASH, DocumentFingerprint.CONTENT_HASH, DocumentFingerprint.VECTOR_FIELD)
+                : List.of(DocumentFingerprint.EMBEDDING_HASH, DocumentFingerprint.CONTENT_HASH);
+            try {
+                MgetResponse<Fingerprint> response = elasticsearchClient.mget(m -> m
+                    .index(source)
+                    .ids(ids)
+                    .sourceIncludes(fields),
+                    Fingerprint.class);
+                Map<String, Fingerprint> fingerprints = new HashMap<>();
+                for (MultiGetResponseItem<Fingerprint> item : response.docs()) {
+                    if (item.isResult() && item.result().found() && item.result().source() != null) {
+                        fingerprints.put(item.result().id(), item.result().source());
+                    }
+                }
+                return fingerprints;
+            } catch (Exception e) {
+                log.warn("查询已有文档指纹失败，本批全部重新推理: {}", e.getMessage());
+                return Map.of();
+            }
+        }
+
+        private void runIndexer() {
+            List<Item> bulk = new ArrayList<>();
+            long bulkBytes = 0;
+            long maxBytes = indexConfig.getBulkMaxBytes();
+            int remainingWorkers = embedWorkers.size();
+            try {
+                while (remainingWorkers > 0) {
+                    Batch batch = indexQueue.take();
+                    if (batch == END) {
+                        remainingWorkers--;
+                        continue;
+                    }
+                    for (int i = 0; i < batch.docs.size(); i++) {
+                        Map<String, Object> doc = batch.docs.get(i);
+                        if (batch.actions[i] == Action.SKIP) {
+                            skipped.incrementAndGet();
+                            release(settle(List.of(new Item(doc, Action.SKIP, batch))));
+                            continue;
+                        }
+                        long bytes = estimateBytes(doc);
+                        if (!bulk.isEmpty() && (bulk.size() >= bulkDocLimit.get() || bulkBytes + bytes > maxBytes)) {
+                            send(bulk);
+                            bulk = new ArrayList<>();
+                            bulkBytes = 0;
+                        }
+                        bulk.add(new Item(doc, batch.actions[i], batch));
+                        bulkBytes += bytes;
+                    }
+                }
+                if (!bulk.isEmpty()) {
+                    send(bulk);
+                }
+                // 拿回全部许可即所有在途请求（包括等待重试的）都已结束
+                inFlight.acquire(maxInFlight);
+                inFlight.release(maxInFlight);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * 发送一个 bulk 请求，在途请求达到上限时阻塞。许可一直持有到该请求的重试全部结束，
+         * 集群限流时在途请求随之减少
+         */
+        private void send(List<Item> items) throws InterruptedException {
+            inFlight.acquire();
+            attempt(items, 0);
+        }
+
+        private void attempt(List<Item> items, int attempt) {
+            if (aborted) {
+                deadLetter(items, 0, "导入已中止，第 " + attempt + " 次重试未发送");
+                inFlight.release();
+                return;
+            }
+            CompletableFuture<BulkResponse> future;
+            try {
+                future = bulk(toRequest(items));
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenComplete((response, error) -> {
+                try {
+                    handle(items, attempt, response != null ? response.items() : null, error);
+                } catch (RuntimeException e) {
+                    // 响应处理到一半失败时，还未结算的文档同样退避重试，重试耗尽后写入死信文件
+                    log.error("处理 bulk 响应失败 - 文档数: {}", items.size(), e);
+                    retryOrDeadLetter(unsettled(items), attempt, 0, "处理 bulk 响应失败: " + e.getMessage());
+                }
+            });
+        }
+
+        private BulkRequest toRequest(List<Item> items) {
+            BulkRequest.Builder request = new BulkRequest.Builder();
+            for (Item item : items) {
+                Map<String, Object> doc = item.doc;
+                Object id = doc.get("aid");
+                if (item.action == Action.UPDATE) {
+                    // 不带向量的部分更新，索引中已有的向量保持不变
+                    request.operations(op -> op.update(u -> u
+                        .index(index)
+                        .id(id.toString())
+                        .action(a -> a.doc(doc))));
+                } else {
+                    request.operations(op -> op.index(i -> i
+                        .index(index)
+                        .id(id != null ? id.toString() : null)
+                        .document(doc)));
+                }
+            }
+            return request.build();
+        }
+
+        /**
+         * 逐条检查 bulk 结果：成功的计数，429 拒绝的退避后重试，其余错误和重试耗尽的写入死信文件
+         *
+         * @param results 与 items 一一对应的结果，整个请求失败时为 null
+         * @param error   整个请求的异常
+         */
+        private void handle(List<Item> items, int attempt, List<BulkResponseItem> results, Throwable error) {
+            List<Item> done = new ArrayList<>(items.size());
+            List<Item> retry = new ArrayList<>();
+            String retryReason;
+            if (error == null && results.size() != items.size()) {
+                throw new IllegalStateException("bulk 响应条数 " + results.size() + " 与请求条数 " + items.size() + " 不一致");
+            }
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (isRejected(cause)) {
+                    shrink();
+                }
+                // 整个请求失败多为超时或节点不可用，全部重试
+                retry.addAll(items);
+                retryReason = String.valueOf(cause.getMessage());
+                log.warn("bulk 请求失败，第 {} 次 - 文档数: {}, 原因: {}", attempt + 1, items.size(), retryReason);
+            } else {
+                boolean rejected = false;
+                for (int i = 0; i < items.size(); i++) {
+                    Item item = items.get(i);
+                    BulkResponseItem result = results.get(i);
+                    if (result.error() == null) {
+                        done.add(item);
+                    } else if (result.status() == 429) {
+                        rejected = true;
+                        retry.add(item);
+                    } else {
+                        deadLetter(List.of(item), result.status(), result.error().type() + ": " + result.error().reason());
+                    }
+                }
+                retryReason = "写入队列已满（429）";
+                if (rejected) {
+                    shrink();
+                } else {
+                    grow();
+                }
+            }
+            List<Item> succeeded = settle(done);
+            indexed.addAndGet(succeeded.size());
+            reused.addAndGet(succeeded.stream()
+                .filter(item -> item.action == Action.UPDATE || item.action == Action.COPY)
+                .count());
+            release(succeeded);
+
+            retryOrDeadLetter(retry, attempt, error != null ? 0 : 429, retryReason);
+        }
+
+        /**
+         * 未结算的文档退避后重试，重试耗尽时写入死信文件；没有文档需要重试时归还在途许可
+         */
+        private void retryOrDeadLetter(List<Item> items, int attempt, int status, String reason) {
+            if (!items.isEmpty() && attempt < indexConfig.getBulkMaxRetries() && !aborted) {
+                long delay = backoff(attempt);
+                log.debug("{} 条文档 {}ms 后重试，第 {} 次", items.size(), delay, attempt + 1);
+                try {
+                    retryScheduler.schedule(() -> attempt(items, attempt + 1), delay, TimeUnit.MILLISECONDS);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    reason = "导入已中止: " + reason;
+                }
+            }
+            if (!items.isEmpty()) {
+                deadLetter(items, status, "重试 " + attempt + " 次后仍失败: " + reason);
+            }
+            inFlight.release();
+        }
+
+        /**
+         * 指数退避，叠加随机抖动避免所有请求同时重试
+         */
+        private long backoff(int attempt) {
+            long base = Math.min(indexConfig.getBulkMaxBackoffMs(),
+                indexConfig.getBulkInitialBackoffMs() << Math.min(attempt, 20));
+            return base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+        }
+
+        /**
+         * 集群拒绝写入时批大小减半
+         */
+        private void shrink() {
+            int min = Math.max(1, indexConfig.getBulkMinDocs());
+            int before = bulkDocLimit.get();
+            int after = bulkDocLimit.updateAndGet(limit -> Math.max(min, limit / 2));
+            if (after < before) {
+                log.warn("ES 拒绝写入，bulk 批大小降为 {}", after);
+            }
+        }
+
+        /**
+         * 写入顺利时批大小逐步恢复到上限
+         */
+        private void grow() {
+            int max = Math.max(1, indexConfig.getBulkMaxDocs());
+            int step = Math.max(1, max / 20);
+            bulkDocLimit.updateAndGet(limit -> Math.min(max, limit + step));
+        }
+
+        private void deadLetter(List<Item> candidates, int status, String reason) {
+            List<Item> items = settle(candidates);
+            if (items.isEmpty()) {
+                return;
+            }
+            failed.addAndGet(items.size());
+            deadLettered.addAndGet(items.size());
+            release(items);
+            writeDeadLetters(items.stream().map(item -> item.doc).toList(), status, reason);
+        }
+
+        /**
+         * @param status bulk 返回的状态码，推理失败时为 0
+         */
+        private void writeDeadLetters(List<Map<String, Object>> docs, int status, String reason) {
+            synchronized (this) {
+                if (deadLettersClosed) {
+                    log.error("死信文件已关闭，丢失 {} 条文档 - 原因: {}", docs.size(), reason);
+                    return;
+                }
+                try {
+                    if (deadLetterWriter == null) {
+                        Path path = Path.of(indexConfig.getDeadLetterPath());
+                        if (path.getParent() != null) {
+                            Files.createDirectories(path.getParent());
+                        }
+                        deadLetterWriter = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                    }
+                    for (Map<String, Object> doc : docs) {
+                        Map<String, Object> document = new LinkedHashMap<>(doc);
+                        document.remove(DocumentFingerprint.VECTOR_FIELD);
+                        document.remove(DocumentFingerprint.EMBEDDING_HASH);
+                        document.remove(DocumentFingerprint.CONTENT_HASH);
+                        Map<String, Object> entry = new LinkedHashMap<>();
+                        entry.put("time", Instant.now().toString());
+                        entry.put("index", index);
+                        entry.put("id", document.get("aid"));
+                        entry.put("status", status);
+                        entry.put("reason", reason);
+                        entry.put("document", document);
+                        deadLetterWriter.write(objectMapper.writeValueAsString(entry));
+                        deadLetterWriter.newLine();
+                    }
+                    deadLetterWriter.flush();
+                } catch (IOException e) {
+                    log.error("写入死信文件失败，丢失 {} 条文档 - 原因: {}", docs.size(), reason, e);
+                }
+            }
+        }
+
+        private void closeDeadLetters() {
+            synchronized (this) {
+                deadLettersClosed = true;
+                if (deadLetterWriter != null) {
+                    try {
+                        deadLetterWriter.close();
+                    } catch (IOException e) {
+                        log.warn("关闭死信文件失败: {}", e.getMessage());
+                    }
+                    deadLetterWriter = null;
+                }
+            }
+        }
+
+        /**
+         * 标记文档已结算，返回本次新结算的文档
+         */
+        private List<Item> settle(List<Item> items) {
+            return items.stream().filter(item -> item.settled.compareAndSet(false, true)).toList();
+        }
+
+        private List<Item> unsettled(List<Item> items) {
+            return items.stream().filter(item -> !item.settled.get()).toList();
+        }
+
+        /**
+         * 已结算的文档计入所属批次，批次内全部结算后完成
+         */
+        private void release(List<Item> settled) {
+            for (Item item : settled) {
+                if (item.owner.remaining.decrementAndGet() == 0) {
+                    complete(item.owner);
+                }
+            }
+        }
+
+        /**
+         * 批次完成后推进连续完成的文档数并通知进度
+         */
+        private void complete(Batch batch) {
+            long progress;
+            synchronized (completedOutOfOrder) {
+                completedOutOfOrder.put(batch.sequence, batch.docs.size());
+                Integer size;
+                while ((size = completedOutOfOrder.remove(nextSequence)) != null) {
+                    completed += size;
+                    nextSequence++;
+                }
+                progress = completed;
+            }
+            if (listener != null) {
+                try {
+                    listener.onProgress(progress, indexed.get(), failed.get());
+                } catch (RuntimeException e) {
+                    log.warn("导入进度回调失败: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 发送 bulk 请求
+     */
+    CompletableFuture<BulkResponse> bulk(BulkRequest request) {
+        return elasticsearchAsyncClient.bulk(request);
+    }
+
+    /**
+     * 整个请求被拒绝（429），说明集群写入队列已满
+     */
+    private static boolean isRejected(Throwable error) {
+        if (error instanceof ElasticsearchException e) {
+            return e.status() == 429;
+        }
+        if (error instanceof TransportException e) {
+            return e.statusCode() == 429;
+        }
+        return false;
+    }
+
+    /**
+     * 拼接标题、简介和演职员等字段作为向量化文本
+     */
+    static String embeddingText(Map<String, Object> doc) {
+        List<String> parts = new ArrayList<>();
+        addText(parts, doc.get("title"));
+        addText(parts, doc.get("brief"));
+        addText(parts, doc.get("actors"));
+        addText(parts, doc.get("directors"));
+        addText(parts, doc.get("tags"));
+        addText(parts, doc.get("voiceTags"));
+        return String.join(" ", parts);
+    }
+
+    private static void addText(List<String> parts, Object value) {
+        if (value instanceof String text && !text.isEmpty()) {
+            parts.add(text);
+        } else if (value instanceof List<?> items) {
+            for (Object item : items) {
+                if (item != null) {
+                    parts.add(item.toString());
+                }
+            }
+        }
+    }
+
+    /**
+     * 估算文档序列化后的字节数，只用于切分 bulk 请求，不需要精确
+     */
+    static long estimateBytes(Object value) {
+        if (value instanceof String text) {
+            // UTF-8 下中文每字 3 字节
+            return text.length() * 3L + 2;
+        }
+        if (value instanceof float[] vector) {
+            return vector.length * 12L;
+        }
+        if (value instanceof Map<?, ?> map) {
+            long bytes = 2;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                bytes += estimateBytes(String.valueOf(entry.getKey())) + estimateBytes(entry.getValue()) + 2;
+            }
+            return bytes;
+        }
+        if (value instanceof Iterable<?> items) {
+            long bytes = 2;
+            for (Object item : items) {
+                bytes += estimateBytes(item) + 1;
+            }
+            return bytes;
+        }
+        return 16;
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.hybridsearchspringboot.service;
+
+import com.example.hybridsearchspringboot.model.ImportProgress;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 影视数据导入
+ * <p>
+ * 用 Jackson 流式解析 JSONL（每行一个 JSON 对象，支持 gzip），逐条交给导入流水线，
+ * 内存中只保留流水线队列里的文档，与文件大小无关。导入过程中定期记录进度和吞吐，
+ * 可从上次的 resumeOffset 继续导入。同一时间只允许一个导入任务。
+ * <p>
+ * 重建模式下写入以批量导入设置新建的版本索引，全部导入完成后才切换别名，导入期间检索不受影响；重建必须从头导入。
+ * 非重建模式直接写入在线索引，索引设置保持不变。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CatalogImportService {
+
+    private static final TypeReference<Map<String, Object>> DOCUMENT_TYPE = new TypeReference<>() {
+    };
+
+    private final ElasticsearchService elasticsearchService;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicReference<Tracker> current = new AtomicReference<>();
+
+    /**
+     * 进度日志的输出间隔
+     */
+    @Value("${import.progress-interval-ms:5000}")
+    private long progressIntervalMs;
+
+    /**
+     * 本地文件导入只能读取该目录下的文件
+     */
+    @Value("${import.directory:data/import}")
+    private String importDirectory;
+
+    /**
+     * 将导入目录下的相对路径解析为文件，不允许访问导入目录之外的文件
+     *
+     * @throws IllegalArgumentException 路径越出导入目录或文件不存在
+     */
+    public Path resolveImportFile(String name) {
+        Path directory = Path.of(importDirectory).toAbsolutePath().normalize();
+        Path file = directory.resolve(name).normalize();
+        if (!file.startsWith(directory) || file.equals(directory)) {
+            throw new IllegalArgumentException("只能导入导入目录下的文件: " + name);
+        }
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("文件不存在: " + name);
+        }
+        try {
+            // 符号链接指向导入目录之外时同样拒绝
+            if (!file.toRealPath().startsWith(directory.toRealPath())) {
+                throw new IllegalArgumentException("只能导入导入目录下的文件: " + name);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("文件无法访问: " + name);
+        }
+        return file;
+    }
+
+    /**
+     * 导入本地文件，顺序读取，普通文件直接定位到起始偏移，gzip 文件解压后跳过起始偏移之前的数据
+     *
+     * @param path     JSONL 或 JSONL.gz 文件
+     * @param offset   起始偏移，通常取上次导入的 resumeOffset
+     * @param rebuild  是否重建到新版本索引后切换别名
+     */
+    public ImportProgress importFile(Path path, long offset, boolean rebuild) {
+        checkRebuild(offset, rebuild);
+        acquire();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            InputStream in;
+            if (isGzip(channel)) {
+                in = new GZIPInputStream(Channels.newInputStream(channel), 1 << 16);
+                in.skipNBytes(offset);
+            } else {
+                channel.position(offset);
+                in = Channels.newInputStream(channel);
+            }
+            return run(path.toString(), in, offset, rebuild);
+        } catch (IOException e) {
+            return failed(path.toString(), offset, e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 导入请求体等不可定位的数据流，自动识别 gzip，跳过起始偏移之前的数据
+     */
+    public ImportProgress importStream(String source, InputStream body, long offset, boolean rebuild) {
+        checkRebuild(offset, rebuild);
+        acquire();
+        try {
+            BufferedInputStream buffered = new BufferedInputStream(body, 1 << 16);
+            buffered.mark(2);
+            boolean gzip = buffered.read() == 0x1f && buffered.read() == 0x8b;
+            buffered.reset();
+            InputStream in = gzip ? new GZIPInputStream(buffered, 1 << 16) : buffered;
+            in.skipNBytes(offset);
+            return run(source, in, offset, rebuild);
+        } catch (IOException e) {
+            return failed(source, offset, e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 当前或最近一次导入的进度，没有导入过时返回 null
+     */
+    public ImportProgress getProgress() {
+        Tracker tracker = current.get();
+        return tracker != null ? tracker.snapshot() : null;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    private static void checkRebuild(long offset, boolean rebuild) {
+        if (rebuild && offset > 0) {
+            throw new IllegalArgumentException("重建索引必须从头导入，不能指定起始偏移");
+        }
+    }
+
+    private void acquire() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("已有导入任务在执行");
+        }
+    }
+
+    private ImportProgress run(String source, InputStream in, long offset, boolean rebuild) throws IOException {
+        Tracker tracker = new Tracker(source, offset);
+        current.set(tracker);
+        log.info("开始导入 {}，起始偏移: {}，重建: {}", source, offset, rebuild);
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            DocumentIterator documents = new DocumentIterator(parser, tracker);
+            BulkIngestPipeline.Result result = rebuild
+                ? elasticsearchService.rebuildIndex(documents, tracker)
+                : elasticsearchService.bulkIndex(documents, tracker);
+            tracker.finish(result);
+        } catch (RuntimeException e) {
+            tracker.fail(e);
+            log.error("导入 {} 失败，可从偏移 {} 继续", source, tracker.snapshot().resumeOffset(), e);
+        }
+        ImportProgress progress = tracker.snapshot();
+        log.info("导入 {} 结束 - 状态: {}, 文档: {}, 成功: {}, 失败: {}, 耗时: {}ms, {} 条/秒, 续传偏移: {}",
+            source, progress.status(), progress.documents(), progress.indexed(), progress.failed(),
+            progress.elapsedMs(), String.format("%.1f", progress.docsPerSecond()), progress.resumeOffset());
+        return progress;
+    }
+
+    private ImportProgress failed(String source, long offset, Exception e) {
+        log.error("打开导入数据 {} 失败", source, e);
+        Tracker tracker = new Tracker(source, offset);
+        tracker.fail(e);
+        current.set(tracker);
+        return tracker.snapshot();
+    }
+
+    private static boolean isGzip(FileChannel channel) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(2);
+        channel.read(magic, 0);
+        return magic.position() == 2 && (magic.get(0) & 0xff) == 0x1f && (magic.get(1) & 0xff) == 0x8b;
+    }
+
+    /**
+     * 逐条读取 JSON 对象，记录每条文档结束处的偏移
+     */
+    private final class DocumentIterator implements Iterator<Map<String, Object>> {
+        private final JsonParser parser;
+        private final Tracker tracker;
+        private Boolean hasNext;
+
+        private DocumentIterator(JsonParser parser, Tracker tracker) {
+            this.parser = parser;
+            this.tracker = tracker;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (hasNext == null) {
+                try {
+                    JsonToken token = parser.nextToken();
+                    if (token != null && token != JsonToken.START_OBJECT) {
+                        throw new IllegalArgumentException("第 " + (tracker.documents + 1) + " 条记录不是 JSON 对象，偏移: "
+                            + tracker.position(parser));
+                    }
+                    hasNext = token != null;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("解析导入数据失败，偏移: " + tracker.position(parser), e);
+                }
+            }
+            return hasNext;
+        }
+
+        @Override
+        public Map<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            hasNext = null;
+            try {
+                Map<String, Object> document = objectMapper.readValue(parser, DOCUMENT_TYPE);
+                tracker.read(tracker.position(parser));
+                return document;
+            } catch (IOException e) {
+                throw new UncheckedIOException("解析导入数据失败，偏移: " + tracker.position(parser), e);
+            }
+        }
+    }
+
+    /**
+     * 记录读取位置和流水线的处理进度，换算出可安全续传的偏移
+     */
+    private final class Tracker implements BulkIngestPipeline.ProgressListener {
+        private final String source;
+        private final long startOffset;
+        private final long startedAt = System.currentTimeMillis();
+
+        /**
+         * 已读取但尚未处理完的文档：[文档序号, 该文档结束处的偏移]，长度受流水线队列容量限制
+         */
+        private final ArrayDeque<long[]> pending = new ArrayDeque<>();
+        private volatile long documents;
+        private volatile long readOffset;
+        private long completed;
+        private long resumeOffset;
+        private long indexed;
+        private long failed;
+        private ImportProgress.Status status = ImportProgress.Status.RUNNING;
+        private String error;
+        private long lastLoggedAt = startedAt;
+
+        private Tracker(String source, long startOffset) {
+            this.source = source;
+            this.startOffset = startOffset;
+            this.readOffset = startOffset;
+            this.resumeOffset = startOffset;
+        }
+
+        private long position(JsonParser parser) {
+            return startOffset + parser.currentLocation().getByteOffset();
+        }
+
+        private synchronized void read(long offset) {
+            documents++;
+            readOffset = offset;
+            pending.addLast(new long[]{documents, offset});
+        }
+
+        @Override
+        public void onProgress(long completed, long indexed, long failed) {
+            boolean report;
+            synchronized (this) {
+                if (completed > this.completed) {
+                    this.completed = completed;
+                    long[] head;
+                    while ((head = pending.peekFirst()) != null && head[0] <= completed) {
+                        resumeOffset = head[1];
+                        pending.pollFirst();
+                    }
+                }
+                this.indexed = Math.max(this.indexed, indexed);
+                this.failed = Math.max(this.failed, failed);
+                long now = System.currentTimeMillis();
+                report = now - lastLoggedAt >= progressIntervalMs;
+                if (report) {
+                    lastLoggedAt = now;
+                }
+            }
+            if (report) {
+                ImportProgress progress = snapshot();
+                log.info("导入 {} 进度 - 已读: {}, 已完成: {}, 失败: {}, {} 条/秒, {} MB/秒, 续传偏移: {}",
+                    source, progress.documents(), progress.completed(), progress.failed(),
+                    String.format("%.1f", progress.docsPerSecond()), String.format("%.2f", progress.mbPerSecond()),
+                    progress.resumeOffset());
+            }
+        }
+
+        private synchronized void finish(BulkIngestPipeline.Result result) {
+            status = ImportProgress.Status.COMPLETED;
+            completed = result.documents();
+            indexed = result.indexed();
+            failed = result.failed();
+            resumeOffset = readOffset;
+            pending.clear();
+        }
+
+        private synchronized void fail(Exception e) {
+            status = ImportProgress.Status.FAILED;
+            error = e.getMessage();
+        }
+
+        private synchronized ImportProgress snapshot() {
+            long elapsedMs = Math.max(1, System.currentTimeMillis() - startedAt);
+            double seconds = elapsedMs / 1000.0;
+            return new ImportProgress(source, status, startOffset, readOffset, resumeOffset, documents, completed,
+                indexed, failed, elapsedMs, completed / seconds,
+                (readOffset - startOffset) / 1024.0 / 1024.0 / seconds, error);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.hybridsearchspringboot.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 文档指纹，随文档写入索引，重复导入时据此判断是否需要重新推理或写入
+ * <p>
+ * embedding_hash 覆盖生成向量的模型和参与向量化的字段，content_hash 覆盖除向量和指纹外的全部字段。
+ * 模型热更新或切换精度版本后 embedding_hash 随之变化，已有向量不会被沿用。
+ */
+final class DocumentFingerprint {
+
+    static final String EMBEDDING_HASH = "embedding_hash";
+    static final String CONTENT_HASH = "content_hash";
+    static final String VECTOR_FIELD = "text_vector";
+
+    /**
+     * 按 key 排序序列化，字段顺序不同的同一文档得到相同指纹
+     */
+    private static final ObjectMapper CANONICAL = new ObjectMapper()
+        .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private static final List<String> DERIVED_FIELDS = List.of(VECTOR_FIELD, EMBEDDING_HASH, CONTENT_HASH);
+
+    private DocumentFingerprint() {
+    }
+
+    /**
+     * 向量的指纹：模型标识加向量化文本
+     *
+     * @param modelIdentity 生成向量的模型，见 {@link ModelHandle#getIdentity()}
+     */
+    static String embeddingHash(String modelIdentity, String embeddingText) {
+        return sha256((modelIdentity + "\n" + embeddingText).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 文档内容的指纹，不含向量和指纹字段
+     */
+    static String contentHash(Map<String, Object> doc) {
+        Map<String, Object> content = new TreeMap<>(doc);
+        DERIVED_FIELDS.forEach(content::remove);
+        try {
+            return sha256(CANONICAL.writeValueAsBytes(content));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("文档无法序列化", e);
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,21 +1,41 @@
 package com.example.hybridsearchspringboot.service;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Time;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.HealthStatus;
+import co.elastic.clients.elasticsearch._types.KnnSearch;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.cluster.HealthResponse;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.SourceConfig;
+import co.elastic.clients.elasticsearch.tasks.GetTasksResponse;
+import co.elastic.clients.json.JsonData;
+import com.example.hybridsearchspringboot.config.HybridSearchConfig;
+import com.example.hybridsearchspringboot.config.IndexConfig;
+import com.example.hybridsearchspringboot.config.SearchSourceConfig;
+import com.example.hybridsearchspringboot.config.VectorSearchConfig;
+import com.example.hybridsearchspringboot.model.MovieHit;
 import com.example.hybridsearchspringboot.model.SearchResult;
+import jakarta.json.JsonObject;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.SearchHit;
 import org.springframework.data.elasticsearch.core.SearchHits;
 import org.springframework.data.elasticsearch.core.document.Document;
-import org.springframework.data.elasticsearch.core.query.Criteria;
-import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
-import org.springframework.data.elasticsearch.core.query.StringQuery;
 import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
 import org.springframework.stereotype.Service;
 
-import org.springframework.data.elasticsearch.core.query.IndexQuery;
-import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.data.elasticsearch.core.query.SourceFilter;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -24,92 +44,124 @@ import java.util.stream.Collectors;
 public class ElasticsearchService {
 
     private final ElasticsearchOperations elasticsearchOperations;
-    private final ModelLoader modelLoader;
-    private static final String INDEX_NAME = "new_movies_index";
+    private final ElasticsearchClient elasticsearchClient;
+    private final ElasticsearchAsyncClient elasticsearchAsyncClient;
+    private final VectorSearchConfig vectorSearchConfig;
+    private final HybridSearchConfig hybridSearchConfig;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final SearchSourceConfig searchSourceConfig;
+    private final IndexConfig indexConfig;
+    private final BulkIngestPipeline bulkIngestPipeline;
+    /**
+     * _source 文档的类型，检索结果统一按 {@code Map<String, Object>} 读取
+     */
+    @SuppressWarnings("unchecked")
+    static final Class<Map<String, Object>> SOURCE_TYPE = (Class<Map<String, Object>>) (Class<?>) Map.class;
+
+    private static final DateTimeFormatter VERSION_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
 
+    /**
+     * 混合检索：文本和 kNN 两路查询通过一次 _msearch 发出，返回后在本地融合排序
+     */
     public Map<String, Object> hybridSearch(String query, int size) {
         try {
-            Map<String, Object> response = new HashMap<>();
-            
-            // 执行文本搜索
-            SearchResult textSearchResult = textSearch(query, size);
-            response.put("textSearch", textSearchResult);
-            
-            // TODO: 执行向量搜索
-            // List<Document> vectorResults = vectorSearch(...);
-            // response.put("vectorSearch", vectorResults);
-            
-            // TODO: 混合排序逻辑
-            // response.put("hybridResults", ...);
-            
-            // 添加元数据
-            Map<String, Object> metadata = new HashMap<>();
-            metadata.put("timestamp", System.currentTimeMillis());
-            metadata.put("queryType", "hybrid");
-            response.put("metadata", metadata);
-            
-            return response;
+            float[] queryVector = queryEmbeddingCache.get(query);
+
+            // 两路各取 window 条候选，一次网络往返
+            int window = Math.max(size, hybridSearchConfig.getWindowSize());
+            NativeQuery textQuery = buildTextQuery(query, window);
+            textQuery.addSourceFilter(searchSourceConfig.getHybridSourceFilter());
+            NativeQuery knnQuery = buildKnnQuery(queryVector, null, window);
+            knnQuery.addSourceFilter(searchSourceConfig.getHybridSourceFilter());
+            List<SearchHits<Map<String, Object>>> legs = elasticsearchOperations.multiSearch(
+                List.of(textQuery, knnQuery),
+                SOURCE_TYPE,
+                IndexCoordinates.of(indexConfig.getName())
+            );
+            return buildHybridResponse(toMovieHits(legs.get(0)), toMovieHits(legs.get(1)), size);
         } catch (Exception e) {
             log.error("混合搜索失败", e);
             throw new RuntimeException("混合搜索失败", e);
         }
     }
 
+    /**
+     * 异步混合检索
+     * <p>
+     * 文本一路不依赖查询向量，与向量生成同时发出；向量就绪后再发出 kNN 一路，两路都返回后融合。
+     * 请求由异步客户端在 IO 线程上完成，调用线程不会阻塞等待 ES。
+     */
+    public CompletableFuture<Map<String, Object>> hybridSearchAsync(String query, int size) {
+        int window = Math.max(size, hybridSearchConfig.getWindowSize());
+        SourceConfig source = toSourceConfig(searchSourceConfig.getHybridSourceFilter());
+
+        CompletableFuture<List<MovieHit>> textLeg = elasticsearchAsyncClient.search(s -> s
+                .index(indexConfig.getName())
+                .query(textQuery(query))
+                .size(window)
+                .source(source), SOURCE_TYPE)
+            .thenApply(ElasticsearchService::toMovieHits);
+
+        CompletableFuture<List<MovieHit>> vectorLeg = queryEmbeddingCache.getAsync(query)
+            .thenCompose(queryVector -> elasticsearchAsyncClient.search(s -> s
+                .index(indexConfig.getName())
+                .knn(knnSearch(queryVector, null, window))
+                .size(window)
+                .source(source), SOURCE_TYPE))
+            .thenApply(ElasticsearchService::toMovieHits);
+
+        return textLeg.thenCombine(vectorLeg, (textHits, vectorHits) -> buildHybridResponse(textHits, vectorHits, size))
+            .whenComplete((response, e) -> {
+                if (e != null) {
+                    log.error("异步混合搜索失败", e);
+                }
+            });
+    }
+
+    /**
+     * 融合两路结果并构建响应
+     */
+    private Map<String, Object> buildHybridResponse(List<MovieHit> textHits, List<MovieHit> vectorHits, int size) {
+        Map<String, Object> response = new HashMap<>();
+
+        // 融合排序
+        double[] weights = {hybridSearchConfig.getTextWeight(), hybridSearchConfig.getVectorWeight()};
+        List<RankFusion.Fused<MovieHit>> fused = switch (hybridSearchConfig.getFusion()) {
+            case RRF -> RankFusion.rrf(List.of(textHits, vectorHits), weights,
+                hybridSearchConfig.getRankConstant(), MovieHit::id, size);
+            case WEIGHTED -> RankFusion.weighted(List.of(textHits, vectorHits), weights,
+                MovieHit::id, MovieHit::score, size);
+        };
+        List<MovieHit> hybridResults = fused.stream()
+            .map(result -> result.item().withScore(result.score()))
+            .collect(Collectors.toList());
+        response.put("hybridResults", hybridResults);
+
+        // 添加元数据
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("timestamp", System.currentTimeMillis());
+        metadata.put("queryType", "hybrid");
+        metadata.put("fusion", hybridSearchConfig.getFusion());
+        metadata.put("textHits", textHits.size());
+        metadata.put("vectorHits", vectorHits.size());
+        response.put("metadata", metadata);
+        return response;
+    }
+
     public SearchResult textSearch(String query, int size) {
         try {
-            // 构建多字段搜索查询
-            Criteria criteria = new Criteria();
-            
-            // 标题字段，最高权重
-            criteria = criteria.or(new Criteria("title").matches(query).boost(3.0f));
-            
-            // 内容和简介字段，中等权重
-            criteria = criteria.or(new Criteria("brief").matches(query).boost(2.0f));
-            criteria = criteria.or(new Criteria("content").matches(query).boost(1.5f));
-            
-            // 演员和导演字段，较低权重
-            criteria = criteria.or(new Criteria("actors").matches(query).boost(1.2f));
-            criteria = criteria.or(new Criteria("directors").matches(query).boost(1.2f));
-            
-            // 标签和语言字段，基础权重
-            criteria = criteria.or(new Criteria("tags").matches(query));
-            criteria = criteria.or(new Criteria("voiceTags").matches(query));
-            criteria = criteria.or(new Criteria("languages").matches(query));
-            
-            CriteriaQuery searchQuery = new CriteriaQuery(criteria);
-            searchQuery.setMaxResults(size);
+            NativeQuery searchQuery = buildTextQuery(query, size);
+            searchQuery.addSourceFilter(searchSourceConfig.getTextSourceFilter());
 
             // 执行搜索
-            SearchHits<Map> searchHits = elasticsearchOperations.search(
+            SearchHits<Map<String, Object>> searchHits = elasticsearchOperations.search(
                 searchQuery,
-                Map.class,
-                IndexCoordinates.of(INDEX_NAME)
+                SOURCE_TYPE,
+                IndexCoordinates.of(indexConfig.getName())
             );
 
-            // 转换搜索结果为 Document 列表
-            List<Map<String, Object>> documents = searchHits.getSearchHits().stream()
-                .map(hit -> {
-                    Map<String, Object> source = hit.getContent();
-                    Map<String, Object> doc = new HashMap<>();
-                    doc.put("id", hit.getId());
-                    doc.put("title", source.get("title"));
-                    doc.put("brief", source.get("brief"));
-                    doc.put("content", source.get("content"));
-                    doc.put("actors", source.get("actors"));
-                    doc.put("directors", source.get("directors"));
-                    doc.put("tags", source.get("tags"));
-                    doc.put("voiceTags", source.get("voiceTags"));
-                    doc.put("languages", source.get("languages"));
-                    doc.put("score", hit.getScore());
-                    doc.put("vendor", source.get("vendor"));
-                    doc.put("channel", source.get("channel"));
-                    doc.put("publishYear", source.get("publishYear"));
-                    doc.put("completed", source.get("completed"));
-                    doc.put("total", source.get("total"));
-                    doc.put("last", source.get("last"));
-                    doc.put("updateTime", source.get("updateTime"));
-                    return doc;
-                })
+            List<MovieHit> documents = searchHits.getSearchHits().stream()
+                .map(ElasticsearchService::toMovieHit)
                 .collect(Collectors.toList());
 
             // 构建扩展信息
@@ -133,6 +185,39 @@ public class ElasticsearchService {
         }
     }
 
+    /**
+     * 构建多字段文本搜索查询
+     */
+    private NativeQuery buildTextQuery(String query, int size) {
+        return NativeQuery.builder()
+            .withQuery(textQuery(query))
+            .withMaxResults(size)
+            .build();
+    }
+
+    /**
+     * 多字段文本查询，各字段 match 之间为 should 关系
+     */
+    private static Query textQuery(String query) {
+        return Query.of(q -> q.bool(b -> b
+            // 标题字段，最高权重
+            .should(match("title", query, 3.0f))
+            // 内容和简介字段，中等权重
+            .should(match("brief", query, 2.0f))
+            .should(match("content", query, 1.5f))
+            // 演员和导演字段，较低权重
+            .should(match("actors", query, 1.2f))
+            .should(match("directors", query, 1.2f))
+            // 标签和语言字段，基础权重
+            .should(match("tags", query, 1.0f))
+            .should(match("voiceTags", query, 1.0f))
+            .should(match("languages", query, 1.0f))));
+    }
+
+    private static Query match(String field, String query, float boost) {
+        return Query.of(q -> q.match(m -> m.field(field).query(query).boost(boost)));
+    }
+
     public void indexDocument(String id, String title, String content) {
         try {
             Map<String, Object> document = Map.of(
@@ -141,7 +226,7 @@ public class ElasticsearchService {
             );
 
             // 使用 ElasticsearchOperations 进行索引
-            elasticsearchOperations.save(document, id, IndexCoordinates.of(INDEX_NAME));
+            elasticsearchOperations.save(document, id, IndexCoordinates.of(indexConfig.getName()));
         } catch (Exception e) {
             log.error("Error indexing document", e);
             throw new RuntimeException("Failed to index document", e);
@@ -150,100 +235,101 @@ public class ElasticsearchService {
 
     /**
      * 执行向量搜索
+     * <p>
+     * 默认使用 kNN（HNSW 近似最近邻），过滤条件作为预过滤在图搜索阶段生效；
+     * 配置 search.vector.exact 后改为 script_score 精确计算。
      */
-    public List<Map<String, Object>> vectorSearch(float[] queryVector, Map<String, List<String>> filterFields) {
+    public List<MovieHit> vectorSearch(float[] queryVector, Map<String, List<String>> filterFields) {
+        if (vectorSearchConfig.isExact()) {
+            return exactVectorSearch(queryVector, filterFields);
+        }
         try {
-            // 构建基础的向量查询
-            StringBuilder queryBuilder = new StringBuilder();
-            // 格式化向量数组为正确的JSON格式
-            String vectorJson = java.util.Arrays.toString(queryVector)
-                .replace("[", "[")
-                .replace("]", "]")
-                .replace(" ", "");
-                
-            queryBuilder.append("""
-                {
-                    "script_score": {
-                        "query": {"match_all": {}},
-                        "script": {
-                            "source": "cosineSimilarity(params.query_vector, 'text_vector') + 1.0",
-                            "params": {
-                                "query_vector": %s
-                            }
-                        }
-                    }
-                }""".formatted(vectorJson));
-
-            // 如果有过滤条件，添加到查询中
-            if (filterFields != null && !filterFields.isEmpty()) {
-                // 将 script_score 查询包装在 bool 查询中
-                String scriptQuery = queryBuilder.toString();
-                queryBuilder = new StringBuilder();
-                queryBuilder.append("""
-                    {
-                        "bool": {
-                            "must": %s,
-                            "filter": [
-                    """.formatted(scriptQuery));
-                
-                List<String> filterClauses = new ArrayList<>();
-                filterFields.forEach((field, values) -> {
-                    if (values != null && !values.isEmpty()) {
-                        values.forEach(value -> {
-                            filterClauses.add(String.format(
-                                "{\"match\": {\"%s\": {\"query\": \"%s\", \"boost\": %f}}}",
-                                field,
-                                value,
-                                field.equals("title") ? 2.0f : 1.0f
-                            ));
-                        });
-                    }
-                });
-                
-                queryBuilder.append(String.join(",", filterClauses));
-                queryBuilder.append("]}}");
+            NativeQuery query = buildKnnQuery(queryVector, filterFields, vectorSearchConfig.getK());
+            query.addSourceFilter(searchSourceConfig.getVectorSourceFilter());
+
+            SearchHits<Map<String, Object>> searchHits = elasticsearchOperations.search(
+                query,
+                SOURCE_TYPE,
+                IndexCoordinates.of(indexConfig.getName())
+            );
+            return searchHits.getSearchHits().stream()
+                .map(ElasticsearchService::toMovieHit)
+                .collect(Collectors.toList());
+        } catch (Exception e) {
+            log.error("向量搜索失败", e);
+            throw new RuntimeException("向量搜索失败", e);
+        }
+    }
+
+    private NativeQuery buildKnnQuery(float[] queryVector, Map<String, List<String>> filterFields, int k) {
+        return NativeQuery.builder()
+            .withKnnSearches(knnSearch(queryVector, filterFields, k))
+            .withMaxResults(k)
+            .build();
+    }
+
+    private KnnSearch knnSearch(float[] queryVector, Map<String, List<String>> filterFields, int k) {
+        int numCandidates = Math.max(k, vectorSearchConfig.getNumCandidates());
+        List<Query> filters = buildFilters(filterFields);
+        return KnnSearch.of(knn -> knn
+            .field("text_vector")
+            .queryVector(new FloatListView(queryVector))
+            .k(k)
+            .numCandidates(numCandidates)
+            .filter(filters));
+    }
+
+    /**
+     * 每个字段的每个取值都必须匹配
+     */
+    private List<Query> buildFilters(Map<String, List<String>> filterFields) {
+        List<Query> filters = new ArrayList<>();
+        if (filterFields == null) {
+            return filters;
+        }
+        filterFields.forEach((field, values) -> {
+            if (values != null) {
+                values.forEach(value -> filters.add(Query.of(q -> q.match(m -> m.field(field).query(value)))));
             }
+        });
+        return filters;
+    }
 
-            StringQuery query = new StringQuery(queryBuilder.toString());
+    /**
+     * 精确向量搜索，script_score 对全部文档逐一计算余弦相似度，耗时随文档数线性增长
+     */
+    public List<MovieHit> exactVectorSearch(float[] queryVector, Map<String, List<String>> filterFields) {
+        try {
+            // 过滤条件放在 script_score 的内层查询中，只对命中过滤的文档计算相似度
+            List<Query> filters = buildFilters(filterFields);
+            Query baseQuery = filters.isEmpty()
+                ? Query.of(q -> q.matchAll(m -> m))
+                : Query.of(q -> q.bool(b -> b.filter(filters)));
+
+            // 查询向量作为脚本参数，由 JSON mapper 直接序列化 float[]
+            NativeQuery query = NativeQuery.builder()
+                .withQuery(q -> q.scriptScore(ss -> ss
+                    .query(baseQuery)
+                    .script(script -> script
+                        .source("cosineSimilarity(params.query_vector, 'text_vector') + 1.0")
+                        .params("query_vector", JsonData.of(queryVector)))))
+                .withMaxResults(vectorSearchConfig.getK())
+                .withSourceFilter(searchSourceConfig.getVectorSourceFilter())
+                .build();
 
             // 执行搜索
-            SearchHits<Map> searchHits = elasticsearchOperations.search(
+            SearchHits<Map<String, Object>> searchHits = elasticsearchOperations.search(
                 query,
-                Map.class,
-                IndexCoordinates.of(INDEX_NAME)
+                SOURCE_TYPE,
+                IndexCoordinates.of(indexConfig.getName())
             );
             if (searchHits.getTotalHits() == 0) {
-                return new ArrayList<>();
+                return List.of();
             }
 
             // 转换结果
             return searchHits.getSearchHits().stream()
-                .map(hit -> {
-                    Map<String, Object> source = hit.getContent();
-                    Map<String, Object> doc = new HashMap<>();
-                    doc.put("id", hit.getId());
-                    doc.put("title", source.get("title"));
-                    doc.put("brief", source.get("brief"));
-                    doc.put("content", source.get("content"));
-                    doc.put("actors", source.get("actors"));
-                    doc.put("directors", source.get("directors"));
-                    doc.put("tags", source.get("tags"));
-                    doc.put("voiceTags", source.get("voiceTags"));
-                    doc.put("languages", source.get("languages"));
-                    doc.put("score", hit.getScore());
-                    doc.put("vendor", source.get("vendor"));
-                    doc.put("channel", source.get("channel"));
-                    doc.put("publishYear", source.get("publishYear"));
-                    doc.put("completed", source.get("completed"));
-                    doc.put("total", source.get("total"));
-                    doc.put("last", source.get("last"));
-                    doc.put("updateTime", source.get("updateTime"));
-                    doc.put("sysTime", source.get("sysTime"));
-                    doc.put("aid", source.get("aid"));
-                    doc.put("vPic", source.get("vPic"));
-                    doc.put("vPicMd5", source.get("vPicMd5"));
-                    return doc;
-                })
+                .map(ElasticsearchService::toMovieHit)
                 .collect(Collectors.toList());
         } catch (Exception e) {
             log.error("向量搜索失败", e);
@@ -251,22 +337,116 @@ public class ElasticsearchService {
         }
     }
 
+    private static MovieHit toMovieHit(SearchHit<Map<String, Object>> hit) {
+        return MovieHit.of(hit.getId(), hit.getScore(), hit.getContent());
+    }
+
+    private static List<MovieHit> toMovieHits(SearchHits<Map<String, Object>> searchHits) {
+        return searchHits.getSearchHits().stream()
+            .map(ElasticsearchService::toMovieHit)
+            .collect(Collectors.toList());
+    }
+
+    private static List<MovieHit> toMovieHits(SearchResponse<Map<String, Object>> response) {
+        return response.hits().hits().stream()
+            .map(hit -> MovieHit.of(hit.id(), hit.score() != null ? hit.score() : 0.0, hit.source()))
+            .collect(Collectors.toList());
+    }
+
+    private static SourceConfig toSourceConfig(SourceFilter filter) {
+        return SourceConfig.of(s -> s.filter(f -> f
+            .includes(Arrays.asList(filter.getIncludes()))
+            .excludes(Arrays.asList(filter.getExcludes()))));
+    }
+
     /**
      * 创建索引
+     * <p>
+     * 索引名 index.name 是读写别名，实际数据在带版本号的物理索引中。别名还不存在时创建第一个版本并指向它；
+     * recreate 为 true 且已有在线版本时，用新的 mapping 和设置创建新版本，把在线文档（含向量）复制过去，
+     * 上线准备完成后再原子切换别名。别名始终指向有数据的版本，复制失败时删除新版本，旧版本继续服务。
      */
-    public void createIndex(boolean deleteIfExists) {
+    public void createIndex(boolean recreate) {
+        String alias = indexConfig.getName();
+        boolean serving = !aliasTargets().isEmpty() || indexExists(alias);
+        if (serving && !recreate) {
+            log.info("索引 {} 已存在", alias);
+            return;
+        }
+        if (!serving) {
+            String index = newIndexName();
+            createPhysicalIndex(index, false);
+            swapAlias(index);
+            return;
+        }
+        String index = newIndexName();
+        createPhysicalIndex(index, true);
+        try {
+            copyDocuments(alias, index);
+            prepareForServing(index);
+            swapAlias(index);
+        } catch (RuntimeException e) {
+            log.error("重建索引 {} 失败，删除未完成的新版本，别名保持不变", index, e);
+            deleteIndexQuietly(index);
+            throw e;
+        }
+        cleanupOldVersions();
+    }
+
+    /**
+     * 重建索引：文档写入新版本的物理索引，完成后恢复在线设置、段合并、预热，再原子切换别名
+     * <p>
+     * 重建期间检索和单条写入仍走旧版本，切换前的单条写入不会带到新版本。新版本构建失败、没有写入任何文档
+     * 或失败文档数超过 index.swap.max-failed-docs 时删除新版本，旧版本继续服务。
+     *
+     * @param documents 全量文档
+     * @param listener  进度回调，可为 null
+     */
+    public BulkIngestPipeline.Result rebuildIndex(Iterator<Map<String, Object>> documents,
+                                                  BulkIngestPipeline.ProgressListener listener) {
+        String index = newIndexName();
+        // 从在线版本查询指纹，内容未变的文档直接复制向量，不必整库重新推理
+        String live = !aliasTargets().isEmpty() || indexExists(indexConfig.getName()) ? indexConfig.getName() : null;
+        createPhysicalIndex(index, true);
+        BulkIngestPipeline.Result result;
         try {
-            // 如果索引存在且需要删除
-            if (deleteIfExists && elasticsearchOperations.indexOps(IndexCoordinates.of(INDEX_NAME)).exists()) {
-                elasticsearchOperations.indexOps(IndexCoordinates.of(INDEX_NAME)).delete();
-                log.info("删除已存在的索引: {}", INDEX_NAME);
+            result = bulkIngestPipeline.ingest(index, live, documents, listener);
+            if (result.indexed() == 0 || result.failed() > indexConfig.getSwapMaxFailedDocs()) {
+                throw new IllegalStateException(String.format("新版本 %s 写入 %d 条，失败 %d 条（上限 %d），不切换别名",
+                    index, result.indexed(), result.failed(), indexConfig.getSwapMaxFailedDocs()));
             }
+            prepareForServing(index);
+            swapAlias(index);
+        } catch (RuntimeException e) {
+            log.error("重建索引 {} 失败，删除未完成的新版本，别名保持不变", index, e);
+            deleteIndexQuietly(index);
+            throw e;
+        }
+        cleanupOldVersions();
+        return result;
+    }
+
+    /**
+     * 别名当前指向的物理索引，别名不存在时返回索引名本身
+     */
+    public String currentIndex() {
+        List<String> targets = aliasTargets();
+        return targets.isEmpty() ? indexConfig.getName() : targets.get(0);
+    }
 
+    /**
+     * 创建物理索引
+     *
+     * @param bulk 是否以批量导入设置创建（关闭刷新、无副本）
+     */
+    private void createPhysicalIndex(String index, boolean bulk) {
+        try {
             // 创建索引配置
             Map<String, Object> settings = new HashMap<>();
-            settings.put("index.number_of_shards", 1);
-            settings.put("index.number_of_replicas", 1);
-            settings.put("index.max_result_window", 10000);
+            settings.put("index.number_of_shards", indexConfig.getShards());
+            settings.put("index.number_of_replicas", bulk ? indexConfig.getBulkReplicas() : indexConfig.getReplicas());
+            settings.put("index.refresh_interval", bulk ? indexConfig.getBulkRefreshInterval() : indexConfig.getRefreshInterval());
+            settings.put("index.max_result_window", indexConfig.getMaxResultWindow());
 
             // 创建映射配置
             Map<String, Object> properties = new HashMap<>();
@@ -321,17 +501,27 @@ public class ElasticsearchService {
             vectorMapping.put("dims", 384);
             vectorMapping.put("index", true);
             vectorMapping.put("similarity", "cosine");
+            vectorMapping.put("index_options", Map.of(
+                "type", "hnsw",
+                "m", indexConfig.getHnswM(),
+                "ef_construction", indexConfig.getHnswEfConstruction()
+            ));
 
             properties.put("text_vector", vectorMapping);
 
+            // 内容指纹，只用于增量导入时比对，不参与检索
+            Map<String, Object> fingerprintMapping = Map.of("type", "keyword", "index", false);
+            properties.put("embedding_hash", fingerprintMapping);
+            properties.put("content_hash", fingerprintMapping);
+
             // 创建映射
             Document mapping = Document.from(Map.of("properties", properties));
 
             // 应用设置和映射
-            elasticsearchOperations.indexOps(IndexCoordinates.of(INDEX_NAME))
+            elasticsearchOperations.indexOps(IndexCoordinates.of(index))
                 .create(settings, mapping);
 
-            log.info("成功创建索引: {}", INDEX_NAME);
+            log.info("成功创建索引: {}，分片: {}，副本: {}", index, indexConfig.getShards(), settings.get("index.number_of_replicas"));
         } catch (Exception e) {
             log.error("创建索引失败", e);
             throw new RuntimeException("创建索引失败", e);
@@ -339,51 +529,235 @@ public class ElasticsearchService {
     }
 
     /**
-     * 批量索引文档
+     * 新版本上线前的准备：恢复在线设置，合并段，等待副本分配完成，执行预热查询
      */
-    public void bulkIndexDocuments(List<Map<String, Object>> documents) {
+    private void prepareForServing(String index) {
+        updateIndexSettings(index, indexConfig.getRefreshInterval(), indexConfig.getReplicas());
+        log.info("索引 {} 恢复在线设置，刷新间隔: {}，副本: {}", index, indexConfig.getRefreshInterval(),
+            indexConfig.getReplicas());
         try {
-            List<IndexQuery> queries = documents.stream()
-                .map(doc -> {
-                    // 生成文本向量
-                    List<String> textParts = new ArrayList<>();
-                    if (doc.get("title") != null) textParts.add((String) doc.get("title"));
-                    if (doc.get("brief") != null) textParts.add((String) doc.get("brief"));
-                    
-                    // 添加数组字段
-                    addListToTextParts(textParts, (List<String>) doc.get("actors"));
-                    addListToTextParts(textParts, (List<String>) doc.get("directors"));
-                    addListToTextParts(textParts, (List<String>) doc.get("tags"));
-                    addListToTextParts(textParts, (List<String>) doc.get("voiceTags"));
-
-                    // 生成向量并添加到文档
-                    if (!textParts.isEmpty()) {
-                        String combinedText = String.join(" ", textParts);
-                        float[] vector = modelLoader.textToVector(combinedText);
-                        log.info("生成向量维度: {}, 文档ID: {}", vector.length, doc.get("aid"));
-                        doc.put("text_vector", vector);
-                    }
-
-                    // 创建索引请求
-                    IndexQueryBuilder queryBuilder = new IndexQueryBuilder();
-                    queryBuilder.withId((String) doc.get("aid"));
-                    queryBuilder.withIndex(INDEX_NAME);
-                    queryBuilder.withObject(doc);
-                    return queryBuilder.build();
-                })
-                .collect(Collectors.toList());
+            elasticsearchClient.indices().refresh(r -> r.index(index));
+            if (indexConfig.getForceMergeSegments() > 0) {
+                forceMerge(index, indexConfig.getForceMergeSegments());
+            }
+            waitForGreen(index);
+            warmUp(index);
+        } catch (IOException e) {
+            throw new RuntimeException("新版本索引上线准备失败: " + index, e);
+        }
+    }
 
-            elasticsearchOperations.bulkIndex(queries, IndexCoordinates.of(INDEX_NAME));
-            log.info("批量索引完成，处理了 {} 条文档", documents.size());
+    /**
+     * 用 reindex 把在线版本的文档原样复制到新版本，向量随 _source 一起复制，不需要重新推理。
+     * 复制耗时较长，以后台任务执行并轮询
+     */
+    private void copyDocuments(String source, String index) {
+        try {
+            String task = elasticsearchClient.reindex(r -> r
+                .source(s -> s.index(source))
+                .dest(d -> d.index(index))
+                .waitForCompletion(false)).task();
+            log.info("开始从 {} 复制文档到 {}", source, index);
+            if (task == null) {
+                return;
+            }
+            GetTasksResponse status = elasticsearchClient.tasks().get(t -> t.taskId(task));
+            while (!status.completed()) {
+                sleep(5000);
+                status = elasticsearchClient.tasks().get(t -> t.taskId(task));
+            }
+            if (status.error() != null) {
+                throw new RuntimeException("复制文档失败: " + status.error().reason());
+            }
+            JsonObject response = status.response() == null ? null : status.response().toJson().asJsonObject();
+            if (response != null && response.containsKey("failures") && !response.getJsonArray("failures").isEmpty()) {
+                throw new RuntimeException("复制文档失败: " + response.getJsonArray("failures"));
+            }
+            log.info("文档复制到 {} 完成，文档数: {}", index,
+                response == null ? "-" : response.getJsonNumber("total"));
+        } catch (IOException e) {
+            throw new RuntimeException("复制文档失败: " + source + " -> " + index, e);
+        }
+    }
+
+    /**
+     * 合并段，kNN 在每个段上各搜一遍 HNSW 图，段越少检索越快。合并耗时较长，以后台任务执行并轮询
+     */
+    private void forceMerge(String index, int maxSegments) throws IOException {
+        String task = elasticsearchClient.indices().forcemerge(f -> f
+            .index(index)
+            .maxNumSegments((long) maxSegments)
+            .waitForCompletion(false)).task();
+        log.info("索引 {} 开始合并段，目标段数: {}", index, maxSegments);
+        if (task == null) {
+            return;
+        }
+        while (!elasticsearchClient.tasks().get(t -> t.taskId(task)).completed()) {
+            sleep(5000);
+        }
+        log.info("索引 {} 段合并完成", index);
+    }
+
+    /**
+     * 等待副本分配完成，避免切换后只有主分片承担查询。超时后仍然切换
+     */
+    private void waitForGreen(String index) throws IOException {
+        long deadline = System.currentTimeMillis() + indexConfig.getSwapHealthTimeoutMs();
+        while (System.currentTimeMillis() < deadline) {
+            // 不带 wait_for_status 轮询：等待超时时 ES 返回 408，客户端会直接抛异常
+            HealthResponse health = elasticsearchClient.cluster().health(h -> h.index(index));
+            if (health.status() == HealthStatus.Green) {
+                return;
+            }
+            sleep(1000);
+        }
+        log.warn("索引 {} 等待副本分配超时，状态未达到 green，继续切换", index);
+    }
+
+    /**
+     * 预热：在新版本上执行文本和 kNN 查询，提前把倒排表和向量数据加载到页缓存，切换后首批查询不出现延迟尖刺
+     */
+    private void warmUp(String index) {
+        IndexCoordinates coordinates = IndexCoordinates.of(index);
+        for (int round = 0; round < indexConfig.getWarmupRounds(); round++) {
+            for (String query : indexConfig.getWarmupQueries()) {
+                if (query.isBlank()) {
+                    continue;
+                }
+                elasticsearchOperations.search(buildTextQuery(query, hybridSearchConfig.getWindowSize()), SOURCE_TYPE, coordinates);
+                elasticsearchOperations.search(
+                    buildKnnQuery(queryEmbeddingCache.get(query), null, hybridSearchConfig.getWindowSize()),
+                    SOURCE_TYPE, coordinates);
+            }
+        }
+        log.info("索引 {} 预热完成，查询 {} 条 × {} 轮", index, indexConfig.getWarmupQueries().length,
+            indexConfig.getWarmupRounds());
+    }
+
+    /**
+     * 原子切换别名到新版本，旧版本同时移出别名
+     * <p>
+     * 别名所在的名称如果还是一个真实索引（改用版本化索引之前创建的），在同一请求中删除它，
+     * 否则别名无法创建。
+     */
+    private void swapAlias(String index) {
+        String alias = indexConfig.getName();
+        List<String> previous = aliasTargets();
+        boolean legacy = previous.isEmpty() && indexExists(alias);
+        try {
+            elasticsearchClient.indices().updateAliases(u -> {
+                for (String old : previous) {
+                    u.actions(a -> a.remove(r -> r.index(old).alias(alias)));
+                }
+                if (legacy) {
+                    u.actions(a -> a.removeIndex(r -> r.index(alias)));
+                }
+                return u.actions(a -> a.add(add -> add.index(index).alias(alias).isWriteIndex(true)));
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("切换索引别名失败", e);
+        }
+        log.info("别名 {} 已切换到 {}，原索引: {}", alias, index, legacy ? alias : previous);
+    }
+
+    /**
+     * 删除超出保留数量的旧版本，别名当前指向的版本不会删除
+     */
+    private void cleanupOldVersions() {
+        String alias = indexConfig.getName();
+        try {
+            List<String> versions = new ArrayList<>(elasticsearchClient.indices()
+                .get(g -> g.index(alias + "_v*").allowNoIndices(true))
+                .result().keySet());
+            Collections.sort(versions);
+            List<String> live = aliasTargets();
+            int keep = Math.max(1, indexConfig.getKeepVersions());
+            for (int i = 0; i < versions.size() - keep; i++) {
+                if (!live.contains(versions.get(i))) {
+                    deleteIndexQuietly(versions.get(i));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("清理旧版本索引失败: {}", e.getMessage());
+        }
+    }
+
+    private List<String> aliasTargets() {
+        try {
+            return new ArrayList<>(elasticsearchClient.indices().getAlias(g -> g.name(indexConfig.getName())).result().keySet());
+        } catch (ElasticsearchException e) {
+            if (e.status() == 404) {
+                return List.of();
+            }
+            throw e;
+        } catch (IOException e) {
+            throw new RuntimeException("查询索引别名失败", e);
+        }
+    }
+
+    private boolean indexExists(String name) {
+        try {
+            return elasticsearchClient.indices().exists(e -> e.index(name)).value();
+        } catch (IOException e) {
+            throw new RuntimeException("查询索引失败", e);
+        }
+    }
+
+    private void deleteIndexQuietly(String index) {
+        try {
+            elasticsearchClient.indices().delete(d -> d.index(index));
+            log.info("删除索引: {}", index);
+        } catch (Exception e) {
+            log.warn("删除索引 {} 失败: {}", index, e.getMessage());
+        }
+    }
+
+    private String newIndexName() {
+        return indexConfig.getName() + "_v" + LocalDateTime.now().format(VERSION_FORMAT);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待被中断", e);
+        }
+    }
+
+    /**
+     * 修改物理索引的刷新间隔和副本数。批量导入设置只用于重建中、尚未切换别名的新索引，不能作用于别名
+     */
+    private void updateIndexSettings(String index, String refreshInterval, int replicas) {
+        try {
+            elasticsearchClient.indices().putSettings(p -> p
+                .index(index)
+                .settings(s -> s
+                    .refreshInterval(Time.of(t -> t.time(refreshInterval)))
+                    .numberOfReplicas(String.valueOf(replicas))));
+        } catch (Exception e) {
+            log.error("更新索引设置失败", e);
+            throw new RuntimeException("更新索引设置失败", e);
+        }
+    }
+
+    /**
+     * 批量索引文档，推理和写入经导入流水线并行进行
+     */
+    public BulkIngestPipeline.Result bulkIndexDocuments(List<Map<String, Object>> documents) {
+        try {
+            return bulkIngestPipeline.ingest(indexConfig.getName(), documents.iterator());
         } catch (Exception e) {
             log.error("批量索引文档失败", e);
             throw new RuntimeException("批量索引文档失败", e);
         }
     }
 
-    private void addListToTextParts(List<String> textParts, List<String> items) {
-        if (items != null && !items.isEmpty()) {
-            textParts.addAll(items);
-        }
+    /**
+     * 流式批量索引，文档逐条从迭代器读取
+     */
+    public BulkIngestPipeline.Result bulkIndex(Iterator<Map<String, Object>> documents,
+                                               BulkIngestPipeline.ProgressListener listener) {
+        return bulkIngestPipeline.ingest(indexConfig.getName(), documents, listener);
     }
-} 
\ No newline at end of file
+}
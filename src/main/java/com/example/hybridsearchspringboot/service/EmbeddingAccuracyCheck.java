@@ -0,0 +1,106 @@
+package com.example.hybridsearchspringboot.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 量化模型精度校验
+ * <p>
+ * 用固定样本分别通过 FP32 参考模型和候选模型生成向量，比较两者的余弦相似度，
+ * 并以查询召回文档的 top-k 重合度衡量检索效果是否下降。
+ */
+final class EmbeddingAccuracyCheck {
+
+    static final List<String> QUERIES = List.of(
+        "流浪地球",
+        "沈腾主演的喜剧电影",
+        "适合孩子看的科幻片",
+        "抗美援朝战争题材电影",
+        "穿越回到过去见到年轻的妈妈",
+        "张艺谋导演的古装悬疑片",
+        "吴京 刘德华",
+        "月球 小行星 撞击地球"
+    );
+
+    static final List<String> DOCUMENTS = List.of(
+        "流浪地球2 在不久的将来，太阳即将毁灭，人类在地球表面建造出巨大的推进器，寻找新的家园。郭帆 吴京 刘德华 科幻 冒险 灾难",
+        "满江红 南宋绍兴年间，岳飞死后四年，秦桧率领的奸臣集团已权倾朝野。张艺谋 沈腾 易烊千玺 悬疑 剧情 古装",
+        "独行月球 人类为抵御小行星的撞击，拯救地球，在月球部署了大量引力装置。张吃鱼 沈腾 马丽 科幻 喜剧",
+        "长津湖 1950年，朝鲜战争爆发，中国人民志愿军赴朝作战。陈凯歌 徐克 林超贤 吴京 易烊千玺 战争 历史",
+        "你好，李焕英 一场意外让贾晓玲穿越回到了1981年，与年轻的母亲李焕英相遇。贾玲 张小斐 沈腾 喜剧 奇幻",
+        "功夫熊猫 一只热爱功夫的熊猫阿宝意外成为神龙大侠。马克·奥斯本 杰克·布莱克 动画 喜剧 动作",
+        "海底小纵队 八个可爱的小动物组成海底探险小队，探索海洋奥秘。动画 科普 少儿",
+        "疯狂动物城 在动物城里，兔子朱迪立志成为警察，和狐狸尼克联手破案。动画 冒险 喜剧",
+        "三体 地球基础科学遭遇异常，纳米科学家汪淼卷入神秘事件。科幻 悬疑 剧情",
+        "我和我的祖国 七个故事讲述新中国成立以来的历史瞬间。陈凯歌 张一白 黄渤 吴京 剧情 历史"
+    );
+
+    private static final int TOP_K = 3;
+
+    private EmbeddingAccuracyCheck() {
+    }
+
+    @FunctionalInterface
+    interface Embedder {
+        List<float[]> embed(List<String> texts) throws Exception;
+    }
+
+    record Result(double meanCosine, double minCosine, double recall) {
+    }
+
+    static Result run(Embedder reference, Embedder candidate) throws Exception {
+        List<String> texts = new ArrayList<>(QUERIES.size() + DOCUMENTS.size());
+        texts.addAll(QUERIES);
+        texts.addAll(DOCUMENTS);
+        List<float[]> expected = reference.embed(texts);
+        List<float[]> actual = candidate.embed(texts);
+
+        // 同一文本两个模型输出向量的余弦相似度（向量均已归一化，点积即余弦）
+        double sum = 0;
+        double min = Double.MAX_VALUE;
+        for (int i = 0; i < texts.size(); i++) {
+            double cosine = dot(expected.get(i), actual.get(i));
+            sum += cosine;
+            min = Math.min(min, cosine);
+        }
+
+        // 每条查询在两个模型下召回的 top-k 文档重合比例
+        double recall = 0;
+        int documentOffset = QUERIES.size();
+        for (int q = 0; q < QUERIES.size(); q++) {
+            Set<Integer> expectedTop = topK(expected, q, documentOffset);
+            Set<Integer> actualTop = topK(actual, q, documentOffset);
+            actualTop.retainAll(expectedTop);
+            recall += (double) actualTop.size() / expectedTop.size();
+        }
+
+        return new Result(sum / texts.size(), min, recall / QUERIES.size());
+    }
+
+    private static Set<Integer> topK(List<float[]> embeddings, int query, int documentOffset) {
+        int documents = embeddings.size() - documentOffset;
+        Integer[] order = new Integer[documents];
+        double[] scores = new double[documents];
+        for (int d = 0; d < documents; d++) {
+            order[d] = d;
+            scores[d] = dot(embeddings.get(query), embeddings.get(documentOffset + d));
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+        Set<Integer> top = new HashSet<>();
+        for (int i = 0; i < Math.min(TOP_K, documents); i++) {
+            top.add(order[i]);
+        }
+        return top;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.hybridsearchspringboot.service;
+
+import com.example.hybridsearchspringboot.config.EmbeddingConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询向量微批合并器
+ * <p>
+ * 并发到达的单条向量化请求先进入队列，工作线程在时间窗口或批大小上限内把它们合并成一次批量推理，
+ * 避免每个请求都单独跑一次 {@code [1, seqLen]} 的推理。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EmbeddingBatchDispatcher {
+
+    private final EmbeddingService embeddingService;
+    private final EmbeddingConfig embeddingConfig;
+
+    private BlockingQueue<PendingEmbedding> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!embeddingConfig.isBatchEnabled()) {
+            log.info("向量微批合并未启用");
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(embeddingConfig.getBatchQueueCapacity());
+        running = true;
+        for (int i = 0; i < embeddingConfig.getBatchWorkers(); i++) {
+            Thread worker = new Thread(this::runWorker, "embedding-batch-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        log.info("向量微批合并已启动 - maxSize: {}, maxWaitMs: {}, workers: {}",
+            embeddingConfig.getBatchMaxSize(), embeddingConfig.getBatchMaxWaitMs(), embeddingConfig.getBatchWorkers());
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        if (queue != null) {
+            PendingEmbedding pending;
+            while ((pending = queue.poll()) != null) {
+                pending.future().completeExceptionally(new IllegalStateException("向量服务已关闭"));
+            }
+        }
+    }
+
+    /**
+     * 提交一条文本，返回异步结果
+     */
+    public CompletableFuture<float[]> submit(String text) {
+        if (!running) {
+            try {
+                return CompletableFuture.completedFuture(embeddingService.generateEmbedding(text));
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        PendingEmbedding pending = new PendingEmbedding(text, new CompletableFuture<>());
+        if (!queue.offer(pending)) {
+            return CompletableFuture.failedFuture(new IllegalStateException("向量请求队列已满"));
+        }
+        return pending.future();
+    }
+
+    /**
+     * 同步获取一条文本的向量
+     */
+    public float[] embed(String text) {
+        try {
+            return submit(text).join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("生成向量失败", e.getCause());
+        }
+    }
+
+    private void runWorker() {
+        int maxSize = embeddingConfig.getBatchMaxSize();
+        long maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(embeddingConfig.getBatchMaxWaitMs());
+        List<PendingEmbedding> batch = new ArrayList<>(maxSize);
+        while (running) {
+            try {
+                // 阻塞等待第一个请求，之后在时间窗口内尽量凑满一个批次
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        queue.drainTo(batch, maxSize - batch.size());
+                        break;
+                    }
+                    PendingEmbedding next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                runBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(p -> p.future().completeExceptionally(e));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void runBatch(List<PendingEmbedding> batch) {
+        List<String> texts = new ArrayList<>(batch.size());
+        for (PendingEmbedding pending : batch) {
+            texts.add(pending.text());
+        }
+        try {
+            List<float[]> embeddings = embeddingService.generateEmbeddings(texts);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future().complete(embeddings.get(i));
+            }
+            log.debug("批量生成向量完成 - batchSize: {}", batch.size());
+        } catch (Exception e) {
+            log.error("批量生成向量失败 - batchSize: {}", batch.size(), e);
+            batch.forEach(p -> p.future().completeExceptionally(e));
+        }
+    }
+
+    private record PendingEmbedding(String text, CompletableFuture<float[]> future) {
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.hybridsearchspringboot.service;
+
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * 句向量池化工具
+ * <p>
+ * 直接按下标读取模型输出的 {@link FloatBuffer}，不再把输出拷贝成 {@code float[][][]}。
+ */
+final class EmbeddingPooling {
+
+    private EmbeddingPooling() {
+    }
+
+    /**
+     * 按 attention mask 做平均池化并 L2 归一化
+     *
+     * @param hidden     模型输出，形状 [batch, seqLen, hiddenSize] 展平
+     * @param mask       attention mask，形状 [batch, seqLen] 展平
+     * @param row        批内行号
+     * @param dimension  输出向量维度，不超过 hiddenSize
+     */
+    static float[] maskedMeanPool(FloatBuffer hidden, LongBuffer mask, int row,
+                                  int seqLen, int hiddenSize, int dimension) {
+        float[] embedding = new float[dimension];
+        int tokenBase = row * seqLen;
+        int count = 0;
+        for (int t = 0; t < seqLen; t++) {
+            // 跳过填充位置
+            if (mask.get(tokenBase + t) == 0) {
+                continue;
+            }
+            int offset = (tokenBase + t) * hiddenSize;
+            for (int j = 0; j < dimension; j++) {
+                embedding[j] += hidden.get(offset + j);
+            }
+            count++;
+        }
+        if (count == 0) {
+            throw new RuntimeException("输入序列没有有效 token");
+        }
+        meanAndNormalize(embedding, count);
+        return embedding;
+    }
+
+    /**
+     * 模型已输出句向量（形状 [batch, hiddenSize]）时直接取行并归一化
+     */
+    static float[] pooledRow(FloatBuffer pooled, int row, int hiddenSize, int dimension) {
+        float[] embedding = new float[dimension];
+        pooled.get(row * hiddenSize, embedding, 0, dimension);
+        meanAndNormalize(embedding, 1);
+        return embedding;
+    }
+
+    /**
+     * 求平均、累计平方和并检查 NaN 合并为一次遍历，第二次遍历完成 L2 归一化
+     */
+    private static void meanAndNormalize(float[] embedding, int count) {
+        float scale = 1.0f / count;
+        float sumOfSquares = 0.0f;
+        for (int j = 0; j < embedding.length; j++) {
+            float value = embedding[j] * scale;
+            embedding[j] = value;
+            sumOfSquares += value * value;
+        }
+        // NaN/Inf 会传播到平方和中，只需检查一次
+        if (!Float.isFinite(sumOfSquares)) {
+            throw new RuntimeException("模型输出包含 NaN 值");
+        }
+        if (sumOfSquares > 0) {
+            float inverseNorm = (float) (1.0 / Math.sqrt(sumOfSquares));
+            for (int j = 0; j < embedding.length; j++) {
+                embedding[j] *= inverseNorm;
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.hybridsearchspringboot.service;
 
+import java.util.List;
+
 /**
  * 文本向量化服务接口
  */
@@ -18,7 +20,21 @@ public interface EmbeddingService {
      * @throws Exception 向量生成过程中的异常
      */
     float[] generateEmbedding(String text) throws Exception;
+
+    /**
+     * 批量生成文本的向量表示，一次推理处理多条文本
+     * @param texts 输入文本列表
+     * @return 与输入顺序一致的向量列表
+     * @throws Exception 向量生成过程中的异常
+     */
+    List<float[]> generateEmbeddings(List<String> texts) throws Exception;
     
+    /**
+     * 当前生效模型的标识，模型文件或精度版本变化时随之变化，用于判断已有向量是否仍可沿用
+     * @return 模型标识
+     */
+    String getModelIdentity();
+
     /**
      * 获取向量维度
      * @return 向量维度
@@ -0,0 +1,29 @@
+package com.example.hybridsearchspringboot.service;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * float[] 的只读 List 视图
+ * <p>
+ * ES 客户端的 kNN 查询向量参数要求 {@code List<Float>}，用视图包装后序列化时逐个读取，
+ * 不再复制出一份装箱后的列表。
+ */
+final class FloatListView extends AbstractList<Float> implements RandomAccess {
+
+    private final float[] values;
+
+    FloatListView(float[] values) {
+        this.values = values;
+    }
+
+    @Override
+    public Float get(int index) {
+        return values[index];
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+}
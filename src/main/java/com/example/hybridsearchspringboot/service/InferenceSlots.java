@@ -0,0 +1,45 @@
+package com.example.hybridsearchspringboot.service;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 共享会话上的推理槽位
+ * <p>
+ * OrtSession 本身支持并发 run，这里用固定数量的槽位限制同时执行的推理数，
+ * 超出的调用方排队等待，超时后直接失败，避免无限制地争抢 CPU。
+ */
+final class InferenceSlots {
+
+    private final Semaphore semaphore;
+    private final long timeoutMillis;
+
+    InferenceSlots(int size, long timeoutMillis) {
+        this.semaphore = new Semaphore(Math.max(1, size), true);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * 获取一个槽位，配合 try-with-resources 使用
+     */
+    Permit acquire() throws InterruptedException {
+        if (!semaphore.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("等待推理槽位超时（" + timeoutMillis + " ms），当前排队: " + semaphore.getQueueLength());
+        }
+        return semaphore::release;
+    }
+
+    int available() {
+        return semaphore.availablePermits();
+    }
+
+    int queueLength() {
+        return semaphore.getQueueLength();
+    }
+
+    @FunctionalInterface
+    interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
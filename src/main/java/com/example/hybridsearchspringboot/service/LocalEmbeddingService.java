@@ -1,35 +1,56 @@
 package com.example.hybridsearchspringboot.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.AbstractEmbeddingModel;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * 本地向量模型的 Spring AI {@code EmbeddingModel} 适配
+ * <p>
+ * 应用内部直接使用 {@link EmbeddingService} 返回的 float[]，只有通过 Spring AI 接口调用时才在这里包装为 {@link Embedding}。
+ */
 @Slf4j
 @Service
-public class LocalEmbeddingService {
-    private static final int VECTOR_DIMENSION = 384;
+public class LocalEmbeddingService extends AbstractEmbeddingModel {
 
     @Autowired
-    private BGEModelManager modelManager;
+    private EmbeddingService embeddingService;
 
-    public List<Double> embed(String text) {
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
         try {
-            // 使用BGE模型生成向量
-            float[] embedding = modelManager.generateEmbedding(text);
-            
-            // 转换为List<Double>
-            List<Double> result = new ArrayList<>(VECTOR_DIMENSION);
-            for (float value : embedding) {
-                result.add((double) value);
+            List<float[]> vectors = embeddingService.generateEmbeddings(request.getInstructions());
+            List<Embedding> embeddings = new ArrayList<>(vectors.size());
+            for (int i = 0; i < vectors.size(); i++) {
+                embeddings.add(new Embedding(vectors.get(i), i));
             }
-            
-            return result;
+            return new EmbeddingResponse(embeddings);
         } catch (Exception e) {
             log.error("向量化失败: {}", e.getMessage(), e);
             throw new RuntimeException("向量化失败", e);
         }
     }
-} 
\ No newline at end of file
+
+    @Override
+    public float[] embed(Document document) {
+        try {
+            return embeddingService.generateEmbedding(document.getText());
+        } catch (Exception e) {
+            log.error("向量化失败: {}", e.getMessage(), e);
+            throw new RuntimeException("向量化失败", e);
+        }
+    }
+
+    @Override
+    public int dimensions() {
+        return embeddingService.getVectorDimension();
+    }
+}
@@ -1,167 +1,314 @@
 package com.example.hybridsearchspringboot.service;
 
 import ai.onnxruntime.*;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 
-import java.io.IOException;
+import java.nio.FloatBuffer;
 import java.nio.LongBuffer;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import com.example.hybridsearchspringboot.config.EmbeddingConfig;
+import com.example.hybridsearchspringboot.config.OnnxSessionConfig;
 import com.example.hybridsearchspringboot.tokenizer.BGETokenizer;
 
 @Service
 public class MiniLMEmbeddingService implements EmbeddingService {
     private static final Logger logger = LoggerFactory.getLogger(MiniLMEmbeddingService.class);
-    private static final String MODEL_PATH = "models/paraphrase-multilingual-MiniLM-L12-v2/model.onnx";
-    private static final int MAX_SEQUENCE_LENGTH = 128;
+    static final String MODEL_NAME = "paraphrase-multilingual-MiniLM-L12-v2";
     private static final int VECTOR_DIMENSION = 384;
+    private static final List<String> AUTO_TUNE_SAMPLES = List.of(
+        "流浪地球2 科幻 冒险 吴京 刘德华",
+        "适合6岁孩子看的自然科学动画片",
+        "沈腾主演的喜剧电影有哪些",
+        "南宋绍兴年间，岳飞死后四年，秦桧率领的奸臣集团已权倾朝野。"
+    );
 
     @Autowired
     private BGETokenizer tokenizer;
 
+    @Autowired
+    private EmbeddingConfig embeddingConfig;
+
+    @Autowired
+    private OnnxSessionConfig onnxSessionConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ModelRegistry modelRegistry;
+
+    @Autowired
+    @Qualifier("inferenceExecutor")
+    private ExecutorService inferenceExecutor;
+
     private OrtEnvironment env;
-    private OrtSession session;
-    private String[] inputNames;
-    private String outputName;
+    private InferenceSlots inferenceSlots;
 
     @PostConstruct
     @Override
     public void init() throws Exception {
         try {
-            // 初始化ONNX Runtime环境
             env = OrtEnvironment.getEnvironment();
+            ModelVariant variant = ModelVariant.from(embeddingConfig.getModelVariant());
             
-            // 加载模型文件
-            ClassPathResource resource = new ClassPathResource(MODEL_PATH);
-            Path tempFile = Files.createTempFile("model", ".onnx");
-            Files.copy(resource.getInputStream(), tempFile, StandardCopyOption.REPLACE_EXISTING);
-            
-            // 创建会话选项
-            OrtSession.SessionOptions sessionOptions = new OrtSession.SessionOptions();
-            sessionOptions.setIntraOpNumThreads(1);
-            
-            // 加载模型
-            session = env.createSession(tempFile.toString(), sessionOptions);
-            
-            // 获取输入输出名称
-            inputNames = session.getInputInfo().keySet().toArray(new String[0]);
-            outputName = session.getOutputInfo().keySet().iterator().next();
+            // 所有请求共享一个会话，通过固定数量的推理槽位控制并发
+            int concurrency = embeddingConfig.getPoolSize();
+            inferenceSlots = new InferenceSlots(concurrency, embeddingConfig.getPoolAcquireTimeoutMs());
+            Gauge.builder("embedding.inference.slots.available", inferenceSlots, InferenceSlots::available)
+                .description("空闲的推理槽位数")
+                .register(meterRegistry);
+            Gauge.builder("embedding.inference.slots.queued", inferenceSlots, InferenceSlots::queueLength)
+                .description("等待推理槽位的调用数")
+                .register(meterRegistry);
+
+            // 启用自动调优时先按本机核数选出最快的线程数
+            if (onnxSessionConfig.isAutoTune()) {
+                onnxSessionConfig.setIntraOpThreads(autoTuneIntraOpThreads(variant, concurrency));
+            }
+
+            // 通过注册表加载模型，热更新时同样经过精度校验
+            modelRegistry.register(MODEL_NAME, variant, concurrency, this::verifyAccuracy);
+            logger.info("ONNX 会话配置 - intraOpThreads: {}, interOpThreads: {}, executionMode: {}, optimizationLevel: {}",
+                onnxSessionConfig.resolveIntraOpThreads(concurrency), onnxSessionConfig.getInterOpThreads(),
+                onnxSessionConfig.getExecutionMode(), onnxSessionConfig.getOptimizationLevel());
             
-            logger.info("paraphrase-multilingual-MiniLM-L12-v2模型加载成功");
+            logger.info("paraphrase-multilingual-MiniLM-L12-v2模型加载成功，版本: {}", variant);
         } catch (Exception e) {
             logger.error("模型加载失败", e);
             throw new RuntimeException("模型加载失败", e);
         }
     }
 
-    @Override
-    public float[] generateEmbedding(String text) throws Exception {
-        try {
-            // 1. 分词
-            int[] tokenIds = tokenizer.tokenize(text);
-            int[] attentionMask = tokenizer.createAttentionMask(tokenIds);
+    /**
+     * 依次尝试不同的算子内线程数，返回样本批次平均耗时最短的配置
+     * <p>
+     * 候选值为 1、2、4 … 直到 CPU 核数 / 并发推理数，保证所有并发推理的线程总数不超过核数。
+     */
+    private int autoTuneIntraOpThreads(ModelVariant variant, int concurrency) throws Exception {
+        int maxThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / Math.max(1, concurrency));
+        List<Integer> candidates = new ArrayList<>();
+        for (int threads = 1; threads < maxThreads; threads *= 2) {
+            candidates.add(threads);
+        }
+        candidates.add(maxThreads);
 
-            // 2. 创建输入tensor
-            long[] shape = new long[]{1, tokenIds.length};
-            
-            // 转换 int[] 为 LongBuffer
-            LongBuffer inputBuffer = LongBuffer.allocate(tokenIds.length);
-            LongBuffer maskBuffer = LongBuffer.allocate(attentionMask.length);
-            for (int i = 0; i < tokenIds.length; i++) {
-                inputBuffer.put(tokenIds[i]);
-                maskBuffer.put(attentionMask[i]);
+        List<String> samples = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, embeddingConfig.getBatchMaxSize()); i++) {
+            samples.add(AUTO_TUNE_SAMPLES.get(i % AUTO_TUNE_SAMPLES.size()));
+        }
+
+        int bestThreads = maxThreads;
+        double bestMillis = Double.MAX_VALUE;
+        for (int threads : candidates) {
+            try (OrtSession.SessionOptions options = onnxSessionConfig.createTuningSessionOptions(threads);
+                 ModelHandle candidate = modelRegistry.open(MODEL_NAME, variant, options)) {
+                // 预热
+                for (int i = 0; i < 3; i++) {
+                    embedWith(candidate, samples);
+                }
+                long start = System.nanoTime();
+                for (int i = 0; i < onnxSessionConfig.getAutoTuneIterations(); i++) {
+                    embedWith(candidate, samples);
+                }
+                double millis = (System.nanoTime() - start) / 1_000_000.0 / onnxSessionConfig.getAutoTuneIterations();
+                logger.info("ONNX 自动调优 - intraOpThreads: {}, 批大小: {}, 平均耗时: {} ms",
+                    threads, samples.size(), String.format("%.2f", millis));
+                if (millis < bestMillis) {
+                    bestMillis = millis;
+                    bestThreads = threads;
+                }
             }
-            inputBuffer.flip();
-            maskBuffer.flip();
-            
-            // 创建输入tensor
-            OnnxTensor inputIds = OnnxTensor.createTensor(env, inputBuffer, shape);
-            OnnxTensor attentionMaskTensor = OnnxTensor.createTensor(env, maskBuffer, shape);
-
-            // 3. 准备输入
-            Map<String, OnnxTensor> inputs = Map.of(
-                inputNames[0], inputIds,
-                inputNames[1], attentionMaskTensor
-            );
-
-            // 4. 运行推理
-            OrtSession.Result result = session.run(inputs);
-
-            // 5. 获取输出并处理
-            Object outputObj = result.get(0).getValue();
-            float[][] output;
-            
-            // 处理不同的输出格式
-            if (outputObj instanceof float[][]) {
-                output = (float[][]) outputObj;
-            } else if (outputObj instanceof float[][][]) {
-                float[][][] output3D = (float[][][]) outputObj;
-                output = output3D[0]; // 取第一个批次
-            } else {
-                logger.error("模型输出格式不支持: {}", outputObj.getClass().getName());
-                throw new RuntimeException("模型输出格式不支持");
+        }
+        logger.info("ONNX 自动调优完成，选用 intraOpThreads: {}", bestThreads);
+        return bestThreads;
+    }
+
+    /**
+     * 非 FP32 版本上线前加载 FP32 参考模型，在固定样本上比较余弦相似度和 top-k 召回，低于阈值时抛出异常
+     */
+    private void verifyAccuracy(ModelHandle candidate) throws Exception {
+        ModelVariant variant = candidate.getVariant();
+        if (variant == ModelVariant.FP32 || !embeddingConfig.isAccuracyCheckEnabled()) {
+            return;
+        }
+        try (OrtSession.SessionOptions options = onnxSessionConfig.createTuningSessionOptions(
+                 onnxSessionConfig.resolveIntraOpThreads(embeddingConfig.getPoolSize()));
+             ModelHandle reference = modelRegistry.open(MODEL_NAME, ModelVariant.FP32, options)) {
+            EmbeddingAccuracyCheck.Result result = EmbeddingAccuracyCheck.run(
+                texts -> embedWith(reference, texts),
+                texts -> embedWith(candidate, texts));
+            logger.info("{} 模型精度校验 - 平均余弦: {}, 最小余弦: {}, top-k 召回: {}", variant,
+                String.format("%.4f", result.meanCosine()), String.format("%.4f", result.minCosine()),
+                String.format("%.4f", result.recall()));
+            if (result.meanCosine() < embeddingConfig.getAccuracyMinCosine()
+                    || result.recall() < embeddingConfig.getAccuracyMinRecall()) {
+                throw new IllegalStateException(String.format(
+                    "%s 模型精度不达标（平均余弦 %.4f，要求 ≥ %.4f；召回 %.4f，要求 ≥ %.4f），拒绝上线",
+                    variant, result.meanCosine(), embeddingConfig.getAccuracyMinCosine(),
+                    result.recall(), embeddingConfig.getAccuracyMinRecall()));
             }
-            
-            logger.info("模型输出形状: [{}][{}]", output.length, output[0].length);
-            
-            // 使用平均池化获取句子表示
-            float[] embedding = new float[VECTOR_DIMENSION];
-            for (int i = 0; i < output.length; i++) {
-                float[] token = output[i];
-                for (int j = 0; j < VECTOR_DIMENSION && j < token.length; j++) {
-                    embedding[j] += token[j];
-                }
+        }
+    }
+
+    @Override
+    public float[] generateEmbedding(String text) throws Exception {
+        return generateEmbeddings(List.of(text)).get(0);
+    }
+
+    @Override
+    public List<float[]> generateEmbeddings(List<String> texts) throws Exception {
+        // 原生推理在虚拟线程上执行会钉住载体线程，转到平台推理线程池执行
+        if (Thread.currentThread().isVirtual()) {
+            try {
+                return inferenceExecutor.submit(() -> embedWithCurrentModel(texts)).get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : new RuntimeException(e.getCause());
             }
-            
-            // 计算平均值
-            for (int i = 0; i < VECTOR_DIMENSION; i++) {
-                embedding[i] /= output.length;
+        }
+        return embedWithCurrentModel(texts);
+    }
+
+    private List<float[]> embedWithCurrentModel(List<String> texts) throws Exception {
+        // 整批推理期间持有同一版本的引用，热更新不会中途切换或关闭会话
+        try (ModelHandle.Lease lease = modelRegistry.acquire(MODEL_NAME)) {
+            return embedWith(lease.handle(), texts);
+        }
+    }
+
+    /**
+     * 使用指定模型句柄批量生成向量，自动调优和精度校验时传入临时句柄
+     */
+    private List<float[]> embedWith(ModelHandle model, List<String> texts) throws Exception {
+        if (texts.isEmpty()) {
+            return List.of();
+        }
+        try {
+            int batchSize = texts.size();
+
+            // 1. 分词，只保留实际长度，不填充
+            int maxTokens = embeddingConfig.getMaxSequenceLength();
+            int[][] tokenIds = new int[batchSize][];
+            for (int b = 0; b < batchSize; b++) {
+                tokenIds[b] = tokenizer.tokenize(texts.get(b), maxTokens);
             }
-            
-            // 向量归一化 (L2范数)
-            float norm = 0.0f;
-            for (float value : embedding) {
-                norm += value * value;
+
+            // 2. 按长度排序后分桶，每个桶只填充到桶内最长序列
+            Integer[] order = new Integer[batchSize];
+            for (int b = 0; b < batchSize; b++) {
+                order[b] = b;
             }
-            norm = (float) Math.sqrt(norm);
-            
-            if (norm > 0) {
-                for (int i = 0; i < VECTOR_DIMENSION; i++) {
-                    embedding[i] /= norm;
+            Arrays.sort(order, Comparator.comparingInt(b -> tokenIds[b].length));
+
+            float[][] embeddings = new float[batchSize][];
+            int maxRows = Math.max(1, embeddingConfig.getBatchMaxSize());
+            int maxBatchTokens = embeddingConfig.getBatchMaxTokens();
+            int from = 0;
+            while (from < batchSize) {
+                // 已按长度升序，桶内最后一条即为最长序列
+                int to = from + 1;
+                while (to < batchSize && to - from < maxRows
+                        && (to - from + 1) * tokenIds[order[to]].length <= maxBatchTokens) {
+                    to++;
                 }
+                runBucket(model, tokenIds, order, from, to, embeddings);
+                from = to;
             }
-            
-            // 检查向量是否包含 NaN
-            boolean hasNaN = false;
-            for (float value : embedding) {
-                if (Float.isNaN(value)) {
-                    hasNaN = true;
-                    break;
+            return Arrays.asList(embeddings);
+        } catch (Exception e) {
+            logger.error("生成向量失败: {}", e.getMessage(), e);
+            throw new RuntimeException("生成向量失败", e);
+        }
+    }
+
+    /**
+     * 对一个长度桶 order[from, to) 执行一次推理，结果按原始下标写回 embeddings
+     */
+    private void runBucket(ModelHandle model, int[][] tokenIds, Integer[] order, int from, int to, float[][] embeddings)
+            throws OrtException, InterruptedException {
+        int bucketSize = to - from;
+        int seqLen = tokenIds[order[to - 1]].length;
+        long padTokenId = tokenizer.getPadTokenId();
+
+        // 创建输入tensor，形状为 [bucketSize, seqLen]
+        long[] shape = new long[]{bucketSize, seqLen};
+        
+        // 写入线程复用的直接缓冲区，短序列补齐到 seqLen，填充位置 attention mask 为 0
+        OnnxInputBuffers buffers = OnnxInputBuffers.current();
+        LongBuffer inputBuffer = buffers.inputIds(bucketSize * seqLen);
+        LongBuffer maskBuffer = buffers.attentionMask(bucketSize * seqLen);
+        for (int b = from; b < to; b++) {
+            int[] ids = tokenIds[order[b]];
+            for (int i = 0; i < seqLen; i++) {
+                if (i < ids.length) {
+                    inputBuffer.put(ids[i]);
+                    maskBuffer.put(1L);
+                } else {
+                    inputBuffer.put(padTokenId);
+                    maskBuffer.put(0L);
                 }
             }
-            
-            if (hasNaN) {
-                logger.error("模型输出包含 NaN 值");
-                throw new RuntimeException("模型输出包含 NaN 值");
-            }
-            
+        }
+        inputBuffer.flip();
+        maskBuffer.flip();
+        
+        // 先占用推理槽位；输入 tensor 与推理结果都持有原生内存，必须显式关闭
+        String[] inputNames = model.getInputNames();
+        InferenceSlots.Permit permit = inferenceSlots.acquire();
+        try (OnnxTensor inputIds = OnnxTensor.createTensor(env, inputBuffer, shape);
+             OnnxTensor attentionMaskTensor = OnnxTensor.createTensor(env, maskBuffer, shape);
+             OrtSession.Result result = model.getSession().run(Map.of(
+                 inputNames[0], inputIds,
+                 inputNames[1], attentionMaskTensor
+             ))) {
+
+            // 直接读取输出 tensor 的 FloatBuffer，不再转换为 float[][][]
+            OnnxTensor output = (OnnxTensor) result.get(0);
+            long[] outputShape = output.getInfo().getShape();
+            FloatBuffer hidden = output.getFloatBuffer();
+            logger.debug("模型输出形状: {}", Arrays.toString(outputShape));
+
             // 验证向量维度
-            if (embedding.length != VECTOR_DIMENSION) {
-                logger.error("模型输出向量维度不正确: 期望 {} 维, 实际 {} 维", VECTOR_DIMENSION, embedding.length);
+            if (outputShape[outputShape.length - 1] < VECTOR_DIMENSION) {
+                logger.error("模型输出向量维度不正确: 期望 {} 维, 实际 {} 维", VECTOR_DIMENSION, outputShape[outputShape.length - 1]);
                 throw new RuntimeException("模型输出向量维度不正确");
             }
-            
-            return embedding;
-        } catch (Exception e) {
-            logger.error("生成向量失败: {}", e.getMessage(), e);
-            throw new RuntimeException("生成向量失败", e);
+
+            for (int b = from; b < to; b++) {
+                int index = order[b];
+                if (outputShape.length == 3) {
+                    // [batch, seqLen, hiddenSize]，按 attention mask 做平均池化
+                    embeddings[index] = EmbeddingPooling.maskedMeanPool(hidden, maskBuffer, b - from,
+                        seqLen, (int) outputShape[2], VECTOR_DIMENSION);
+                } else if (outputShape.length == 2) {
+                    // [batch, hiddenSize]，模型已输出句向量
+                    embeddings[index] = EmbeddingPooling.pooledRow(hidden, b - from, (int) outputShape[1], VECTOR_DIMENSION);
+                } else {
+                    logger.error("模型输出形状不支持: {}", Arrays.toString(outputShape));
+                    throw new RuntimeException("模型输出格式不支持");
+                }
+            }
+        } finally {
+            permit.close();
+        }
+    }
+
+    @Override
+    public String getModelIdentity() {
+        try (ModelHandle.Lease lease = modelRegistry.acquire(MODEL_NAME)) {
+            return lease.handle().getIdentity();
         }
     }
 
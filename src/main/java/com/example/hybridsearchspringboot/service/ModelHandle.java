@@ -0,0 +1,157 @@
+package com.example.hybridsearchspringboot.service;
+
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 已加载模型的共享句柄
+ * <p>
+ * 持有 OrtSession 及其输入输出名称，按引用计数管理生命周期：注册表持有一个引用，
+ * 每次推理通过 {@link #retain()} 借出一个 {@link Lease}。热更新时旧句柄被 {@link #close()} 释放注册表的引用，
+ * 等正在进行的推理全部归还后才真正关闭会话。
+ */
+public final class ModelHandle implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ModelHandle.class);
+
+    private final String name;
+    private final long version;
+    private final ModelVariant variant;
+    private final String source;
+    private final String checksum;
+    private final OrtSession session;
+    private final String[] inputNames;
+    private final String outputName;
+    private final Instant loadedAt = Instant.now();
+
+    /**
+     * 初始为 1，代表持有者（注册表或临时使用方）自身的引用
+     */
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    ModelHandle(String name, long version, ModelVariant variant, String source, String checksum, OrtSession session)
+            throws OrtException {
+        this.name = name;
+        this.version = version;
+        this.variant = variant;
+        this.source = source;
+        this.checksum = checksum;
+        this.session = session;
+        this.inputNames = session.getInputInfo().keySet().toArray(new String[0]);
+        this.outputName = session.getOutputInfo().keySet().iterator().next();
+    }
+
+    /**
+     * 借出一个引用；句柄已经关闭时返回 null，调用方应重新获取当前版本
+     */
+    Lease retain() {
+        int count;
+        do {
+            count = references.get();
+            if (count == 0) {
+                return null;
+            }
+        } while (!references.compareAndSet(count, count + 1));
+        return new Lease(this);
+    }
+
+    private void release() {
+        if (references.decrementAndGet() == 0) {
+            try {
+                session.close();
+                logger.info("模型 {} v{} 已卸载", name, version);
+            } catch (OrtException e) {
+                logger.warn("关闭模型 {} v{} 会话失败: {}", name, version, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 释放持有者的引用，没有正在进行的推理时立即关闭会话
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            release();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public ModelVariant getVariant() {
+        return variant;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * 模型文件的 SHA-256，临时句柄为 null
+     */
+    public String getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * 模型标识：名称、精度版本和模型文件指纹。进程内的 version 重启后从 1 开始，不能用来区分模型文件
+     */
+    public String getIdentity() {
+        return name + "/" + variant + "/" + checksum;
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+
+    public OrtSession getSession() {
+        return session;
+    }
+
+    public String[] getInputNames() {
+        return inputNames;
+    }
+
+    public String getOutputName() {
+        return outputName;
+    }
+
+    /**
+     * 正在使用该句柄的推理数
+     */
+    public int getActiveLeases() {
+        return closed.get() ? references.get() : Math.max(0, references.get() - 1);
+    }
+
+    /**
+     * 借出的引用，配合 try-with-resources 使用
+     */
+    public static final class Lease implements AutoCloseable {
+        private final ModelHandle handle;
+
+        private Lease(ModelHandle handle) {
+            this.handle = handle;
+        }
+
+        public ModelHandle handle() {
+            return handle;
+        }
+
+        @Override
+        public void close() {
+            handle.release();
+        }
+    }
+}
@@ -21,7 +21,7 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 public class ModelLoader {
 
-    private final LocalEmbeddingService embeddingService;
+    private final EmbeddingService embeddingService;
     private final ChatModel chatModel;
     private final PromptConfig promptConfig;
     private final ObjectMapper objectMapper;
@@ -74,13 +74,26 @@ public class ModelLoader {
      */
     public float[] textToVector(String text) {
         try {
-            List<Double> embedding = embeddingService.embed(text);
-            // 将 List<Double> 转换为 float[]
-            float[] result = new float[embedding.size()];
-            for (int i = 0; i < embedding.size(); i++) {
-                result[i] = embedding.get(i).floatValue();
-            }
-            return result;
+            return embeddingService.generateEmbedding(text);
+        } catch (Exception e) {
+            log.error("文本向量化失败", e);
+            throw new RuntimeException("文本向量化失败", e);
+        }
+    }
+
+    /**
+     * 当前向量化模型的标识，见 {@link EmbeddingService#getModelIdentity()}
+     */
+    public String embeddingModelIdentity() {
+        return embeddingService.getModelIdentity();
+    }
+
+    /**
+     * 批量将文本转换为向量，返回顺序与输入一致
+     */
+    public List<float[]> textsToVectors(List<String> texts) {
+        try {
+            return embeddingService.generateEmbeddings(texts);
         } catch (Exception e) {
             log.error("文本向量化失败", e);
             throw new RuntimeException("文本向量化失败", e);
@@ -0,0 +1,242 @@
+package com.example.hybridsearchspringboot.service;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import com.example.hybridsearchspringboot.config.OnnxSessionConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 模型注册表，每个模型只加载一份会话供所有向量服务共享
+ * <p>
+ * 模型位于磁盘上时直接按路径交给 ONNX Runtime 读取，打包在 jar 内时读入字节数组后创建会话，
+ * 不再复制临时文件。热更新先加载并校验新版本，再原子替换当前句柄，旧句柄在进行中的推理结束后关闭。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ModelRegistry {
+
+    private final ResourceLoader resourceLoader;
+    private final OnnxSessionConfig onnxSessionConfig;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Map<String, Registration> registrations = new ConcurrentHashMap<>();
+
+    /**
+     * 模型根目录，支持 classpath: 和 file: 前缀，每个模型一个子目录
+     */
+    @Value("${embedding.model.location:classpath:models}")
+    private String location;
+
+    /**
+     * 新版本上线前的校验，抛出异常则放弃加载
+     */
+    @FunctionalInterface
+    public interface ModelValidator {
+        void validate(ModelHandle candidate) throws Exception;
+    }
+
+    /**
+     * 注册并加载模型
+     *
+     * @param name        模型名称，即模型根目录下的子目录名
+     * @param variant     精度版本
+     * @param concurrency 共享会话上同时执行的推理数，用于计算线程数
+     * @param validator   上线前校验
+     */
+    public ModelHandle register(String name, ModelVariant variant, int concurrency, ModelValidator validator) throws Exception {
+        Registration registration = new Registration(variant, concurrency, validator);
+        if (registrations.putIfAbsent(name, registration) != null) {
+            throw new IllegalStateException("模型已注册: " + name);
+        }
+        try {
+            return reload(name, variant);
+        } catch (Exception e) {
+            registrations.remove(name);
+            throw e;
+        }
+    }
+
+    /**
+     * 获取模型当前版本的引用，调用方用完后必须关闭
+     */
+    public ModelHandle.Lease acquire(String name) {
+        AtomicReference<ModelHandle> current = registration(name).current;
+        while (true) {
+            ModelHandle handle = current.get();
+            if (handle == null) {
+                throw new IllegalStateException("模型尚未加载: " + name);
+            }
+            ModelHandle.Lease lease = handle.retain();
+            if (lease != null) {
+                return lease;
+            }
+            // 读取后句柄恰好被替换并关闭，重新读取新版本
+        }
+    }
+
+    /**
+     * 重新加载模型，variant 为 null 时沿用当前精度版本
+     * <p>
+     * 新版本加载或校验失败时抛出异常，当前版本继续提供服务。
+     */
+    public ModelHandle reload(String name, ModelVariant variant) throws Exception {
+        Registration registration = registration(name);
+        // 热更新会加载模型，耗时较长，用 ReentrantLock 避免在虚拟线程上持有监视器
+        registration.lock.lock();
+        try {
+            ModelVariant target = variant != null ? variant : registration.variant;
+            long version = registration.latestVersion + 1;
+            ModelHandle candidate;
+            try (OrtSession.SessionOptions options = onnxSessionConfig.createSessionOptions(registration.concurrency)) {
+                candidate = open(name, target, version, options);
+            }
+            try {
+                registration.validator.validate(candidate);
+            } catch (Exception e) {
+                candidate.close();
+                throw e;
+            }
+
+            registration.latestVersion = version;
+            registration.variant = target;
+            ModelHandle previous = registration.current.getAndSet(candidate);
+            long previousVersion = 0;
+            if (previous != null) {
+                previousVersion = previous.getVersion();
+                previous.close();
+            }
+            log.info("模型 {} v{} 已上线，版本: {}，来源: {}，SHA-256: {}", name, version, target, candidate.getSource(),
+                candidate.getChecksum());
+            eventPublisher.publishEvent(new ModelVersionChangedEvent(name, previousVersion, version, target));
+            return candidate;
+        } finally {
+            registration.lock.unlock();
+        }
+    }
+
+    /**
+     * 按指定会话选项创建不纳入注册表管理的临时句柄，用于自动调优和精度对比，调用方负责关闭
+     */
+    public ModelHandle open(String name, ModelVariant variant, OrtSession.SessionOptions options) throws OrtException, IOException {
+        return open(name, variant, 0, options);
+    }
+
+    /**
+     * 打开模型会话。纳入注册表的版本（version > 0）同时计算模型文件的 SHA-256，
+     * 用于标识向量由哪个模型文件生成；临时句柄不计算，避免自动调优时重复读取模型文件
+     */
+    private ModelHandle open(String name, ModelVariant variant, long version, OrtSession.SessionOptions options)
+            throws OrtException, IOException {
+        OrtEnvironment env = OrtEnvironment.getEnvironment();
+        String path = variant.resolve(location + "/" + name);
+        Resource resource = resourceLoader.getResource(path);
+        if (!resource.exists()) {
+            throw new IOException("模型文件不存在: " + path);
+        }
+        OrtSession session;
+        String source;
+        String checksum = null;
+        if (resource.isFile()) {
+            // 磁盘文件直接交给 ONNX Runtime 读取
+            source = resource.getFile().getAbsolutePath();
+            if (version > 0) {
+                try (InputStream in = resource.getInputStream()) {
+                    checksum = sha256(in);
+                }
+            }
+            session = env.createSession(source, options);
+        } else {
+            // jar 内的模型读入内存后创建会话，会话创建完成即可回收字节数组
+            source = path;
+            byte[] bytes = resource.getContentAsByteArray();
+            if (version > 0) {
+                checksum = sha256(new ByteArrayInputStream(bytes));
+            }
+            session = env.createSession(bytes, options);
+        }
+        return new ModelHandle(name, version, variant, source, checksum, session);
+    }
+
+    private static String sha256(InputStream in) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[1 << 16];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 所有已注册模型的当前句柄
+     */
+    public List<ModelHandle> list() {
+        List<ModelHandle> handles = new ArrayList<>();
+        for (Registration registration : registrations.values()) {
+            ModelHandle handle = registration.current.get();
+            if (handle != null) {
+                handles.add(handle);
+            }
+        }
+        return handles;
+    }
+
+    private Registration registration(String name) {
+        Registration registration = registrations.get(name);
+        if (registration == null) {
+            throw new IllegalArgumentException("未注册的模型: " + name);
+        }
+        return registration;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Registration registration : registrations.values()) {
+            ModelHandle handle = registration.current.getAndSet(null);
+            if (handle != null) {
+                handle.close();
+            }
+        }
+    }
+
+    private static final class Registration {
+        private final int concurrency;
+        private final ModelValidator validator;
+        private final AtomicReference<ModelHandle> current = new AtomicReference<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private ModelVariant variant;
+        private long latestVersion;
+
+        private Registration(ModelVariant variant, int concurrency, ModelValidator validator) {
+            this.variant = variant;
+            this.concurrency = concurrency;
+            this.validator = validator;
+        }
+    }
+}
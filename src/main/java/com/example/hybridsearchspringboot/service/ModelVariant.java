@@ -0,0 +1,42 @@
+package com.example.hybridsearchspringboot.service;
+
+import java.util.Locale;
+
+/**
+ * 模型精度版本，各版本放在同一模型目录下
+ */
+public enum ModelVariant {
+
+    /**
+     * 原始 FP32 模型
+     */
+    FP32("model.onnx"),
+
+    /**
+     * 动态量化的 INT8 模型，CPU 上推理延迟和内存约减半
+     */
+    INT8("model_int8.onnx"),
+
+    /**
+     * FP16 模型，需以 FP32 输入输出导出（keep_io_types）
+     */
+    FP16("model_fp16.onnx");
+
+    private final String fileName;
+
+    ModelVariant(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String resolve(String modelDir) {
+        return modelDir + "/" + fileName;
+    }
+
+    public static ModelVariant from(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("不支持的模型版本: " + value + "，可选 fp32 / int8 / fp16", e);
+        }
+    }
+}
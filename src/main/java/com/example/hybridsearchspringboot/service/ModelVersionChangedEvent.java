@@ -0,0 +1,12 @@
+package com.example.hybridsearchspringboot.service;
+
+/**
+ * 模型热更新完成后发布的事件，依赖向量结果的缓存应据此失效
+ *
+ * @param name            模型名称
+ * @param previousVersion 被替换的版本，首次加载时为 0
+ * @param version         当前生效的版本
+ * @param variant         当前生效的精度版本
+ */
+public record ModelVersionChangedEvent(String name, long previousVersion, long version, ModelVariant variant) {
+}
@@ -0,0 +1,60 @@
+package com.example.hybridsearchspringboot.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 原生内存指标，通过 /actuator/metrics 暴露
+ * <p>
+ * ONNX Runtime 的内存分配不在 JVM 堆和直接内存统计内，只能通过进程 RSS 观察，
+ * 长时间压测时 RSS 应保持平稳。
+ */
+@Slf4j
+@Component
+public class NativeMemoryMetrics implements MeterBinder {
+
+    private static final Path PROC_STATUS = Path.of("/proc/self/status");
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("process.memory.rss", NativeMemoryMetrics::residentSetBytes)
+            .description("进程常驻内存（RSS），包含 ONNX Runtime 的原生分配")
+            .baseUnit("bytes")
+            .register(registry);
+
+        Gauge.builder("embedding.onnx.input.buffer", OnnxInputBuffers::allocatedBytes)
+            .description("推理线程复用的 input_ids/attention_mask 直接内存")
+            .baseUnit("bytes")
+            .register(registry);
+    }
+
+    /**
+     * 读取 /proc/self/status 中的 VmRSS，非 Linux 环境返回 NaN
+     */
+    private static double residentSetBytes() {
+        if (!Files.isReadable(PROC_STATUS)) {
+            return Double.NaN;
+        }
+        try {
+            List<String> lines = Files.readAllLines(PROC_STATUS);
+            for (String line : lines) {
+                if (line.startsWith("VmRSS:")) {
+                    // 格式: "VmRSS:	  123456 kB"
+                    String value = line.substring("VmRSS:".length()).trim().split("\\s+")[0];
+                    return Long.parseLong(value) * 1024.0;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("读取进程 RSS 失败: {}", e.getMessage());
+        }
+        return Double.NaN;
+    }
+}
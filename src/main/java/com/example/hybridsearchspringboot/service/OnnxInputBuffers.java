@@ -0,0 +1,66 @@
+package com.example.hybridsearchspringboot.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 每个推理线程复用的 input_ids / attention_mask 直接内存缓冲区
+ * <p>
+ * ONNX Runtime 对原生字节序的直接缓冲区不再额外拷贝，创建 tensor 时直接引用这块内存。
+ * 缓冲区只增不减，按 2 的幂扩容，生命周期跟随线程。
+ */
+final class OnnxInputBuffers {
+
+    private static final int MIN_ELEMENTS = 512;
+    private static final ThreadLocal<OnnxInputBuffers> CURRENT = ThreadLocal.withInitial(OnnxInputBuffers::new);
+    private static final AtomicLong ALLOCATED_BYTES = new AtomicLong();
+
+    private LongBuffer inputIds;
+    private LongBuffer attentionMask;
+
+    private OnnxInputBuffers() {
+    }
+
+    static OnnxInputBuffers current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 所有线程已分配的直接内存字节数
+     */
+    static long allocatedBytes() {
+        return ALLOCATED_BYTES.get();
+    }
+
+    /**
+     * 返回可写入 elements 个元素的 input_ids 缓冲区，position 为 0
+     */
+    LongBuffer inputIds(int elements) {
+        inputIds = ensureCapacity(inputIds, elements);
+        return inputIds;
+    }
+
+    /**
+     * 返回可写入 elements 个元素的 attention_mask 缓冲区，position 为 0
+     */
+    LongBuffer attentionMask(int elements) {
+        attentionMask = ensureCapacity(attentionMask, elements);
+        return attentionMask;
+    }
+
+    private static LongBuffer ensureCapacity(LongBuffer buffer, int elements) {
+        if (buffer == null || buffer.capacity() < elements) {
+            int capacity = Math.max(MIN_ELEMENTS, Integer.highestOneBit(Math.max(1, elements - 1)) << 1);
+            long previousBytes = buffer == null ? 0 : (long) buffer.capacity() * Long.BYTES;
+            buffer = ByteBuffer.allocateDirect(capacity * Long.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asLongBuffer();
+            ALLOCATED_BYTES.addAndGet((long) capacity * Long.BYTES - previousBytes);
+        }
+        buffer.clear();
+        buffer.limit(elements);
+        return buffer;
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.hybridsearchspringboot.service;
+
+import com.example.hybridsearchspringboot.config.EmbeddingConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 查询向量缓存
+ * <p>
+ * 查询分布集中在少数热门片名和演员上，命中缓存时直接返回已有向量，不再经过推理。
+ * 以归一化后的查询文本为 key，按访问顺序做 LRU 淘汰，条目超过 TTL 后视为未命中；
+ * 模型热更新后旧向量与新模型不在同一空间，收到 {@link ModelVersionChangedEvent} 时整体清空。
+ */
+@Slf4j
+@Service
+public class QueryEmbeddingCache {
+
+    private final EmbeddingBatchDispatcher embeddingDispatcher;
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final MeterRegistry meterRegistry;
+    private final LinkedHashMap<String, Entry> entries;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * 每次清空时递增，避免旧模型生成、清空后才返回的向量被写回缓存
+     */
+    private long generation;
+
+    public QueryEmbeddingCache(EmbeddingBatchDispatcher embeddingDispatcher, EmbeddingConfig embeddingConfig,
+                               MeterRegistry meterRegistry) {
+        this.embeddingDispatcher = embeddingDispatcher;
+        this.meterRegistry = meterRegistry;
+        this.enabled = embeddingConfig.isCacheEnabled();
+        this.maxSize = Math.max(1, embeddingConfig.getCacheMaxSize());
+        this.ttlNanos = embeddingConfig.getCacheTtlSeconds() * 1_000_000_000L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, QueryEmbeddingCache.Entry> eldest) {
+                if (size() > maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.hits = Counter.builder("embedding.query.cache")
+            .tag("result", "hit")
+            .description("查询向量缓存命中次数")
+            .register(meterRegistry);
+        this.misses = Counter.builder("embedding.query.cache")
+            .tag("result", "miss")
+            .description("查询向量缓存未命中次数")
+            .register(meterRegistry);
+        this.evictions = Counter.builder("embedding.query.cache.evictions")
+            .description("因容量或过期淘汰的条目数")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 条目数指标引用缓存自身，构造完成后再注册
+     */
+    @PostConstruct
+    void registerSizeGauge() {
+        Gauge.builder("embedding.query.cache.size", this, QueryEmbeddingCache::size)
+            .description("查询向量缓存当前条目数")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 获取查询向量，未命中时通过批量推理生成并写入缓存
+     * <p>
+     * 返回的数组被缓存共享，调用方不得修改。
+     */
+    public float[] get(String query) {
+        try {
+            return getAsync(query).join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("生成向量失败", e.getCause());
+        }
+    }
+
+    /**
+     * 异步获取查询向量，命中时返回已完成的 future，未命中时在批量推理完成后写入缓存
+     */
+    public CompletableFuture<float[]> getAsync(String query) {
+        if (!enabled) {
+            return embeddingDispatcher.submit(query);
+        }
+        String key = normalize(query);
+        long now = System.nanoTime();
+        long expectedGeneration;
+        lock.lock();
+        try {
+            expectedGeneration = generation;
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (now - entry.createdAt() < ttlNanos) {
+                    hits.increment();
+                    return CompletableFuture.completedFuture(entry.vector());
+                }
+                entries.remove(key);
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // 推理在锁外进行，同一查询并发未命中时各自推理，结果相同，后写入者覆盖
+        misses.increment();
+        return embeddingDispatcher.submit(key).thenApply(vector -> {
+            lock.lock();
+            try {
+                if (generation == expectedGeneration) {
+                    entries.put(key, new Entry(vector, now));
+                }
+            } finally {
+                lock.unlock();
+            }
+            return vector;
+        });
+    }
+
+    /**
+     * 模型版本变化后清空缓存
+     */
+    @EventListener
+    public void onModelVersionChanged(ModelVersionChangedEvent event) {
+        if (event.previousVersion() == 0) {
+            return;
+        }
+        int cleared;
+        lock.lock();
+        try {
+            cleared = entries.size();
+            entries.clear();
+            generation++;
+        } finally {
+            lock.unlock();
+        }
+        log.info("模型 {} 已更新到 v{}，清空 {} 条查询向量缓存", event.name(), event.version(), cleared);
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 查询归一化：NFKC（全角转半角）、小写、去除首尾空白并合并连续空白
+     */
+    static String normalize(String query) {
+        String normalized = Normalizer.normalize(query, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(normalized.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                pendingSpace = sb.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private record Entry(float[] vector, long createdAt) {
+    }
+}
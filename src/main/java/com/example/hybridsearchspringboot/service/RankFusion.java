@@ -0,0 +1,128 @@
+package com.example.hybridsearchspringboot.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 多路召回结果融合
+ * <p>
+ * 各路结果按文档 id 合并得分，再用大小为 k 的小顶堆取出前 k 条，不对全部候选排序。
+ */
+public final class RankFusion {
+
+    public enum Method {
+        /**
+         * 倒数排名融合：score = Σ weight / (rankConstant + rank)，只看名次，不受各路分数量纲影响
+         */
+        RRF,
+
+        /**
+         * 加权分数融合：每路分数按 min-max 归一化到 [0, 1] 后加权求和
+         */
+        WEIGHTED
+    }
+
+    /**
+     * 融合后的结果，item 取第一次出现该文档的那一路
+     */
+    public record Fused<T>(T item, double score) {
+    }
+
+    private RankFusion() {
+    }
+
+    /**
+     * 倒数排名融合
+     *
+     * @param legs         各路结果，按相关度降序
+     * @param weights      各路权重
+     * @param rankConstant 平滑常数，常用 60
+     * @param idOf         文档 id
+     * @param topK         返回条数
+     */
+    public static <T> List<Fused<T>> rrf(List<List<T>> legs, double[] weights, int rankConstant,
+                                         Function<T, String> idOf, int topK) {
+        Map<String, Accumulator<T>> merged = new LinkedHashMap<>();
+        for (int leg = 0; leg < legs.size(); leg++) {
+            List<T> items = legs.get(leg);
+            for (int rank = 0; rank < items.size(); rank++) {
+                T item = items.get(rank);
+                merged.computeIfAbsent(idOf.apply(item), id -> new Accumulator<>(item)).score +=
+                    weights[leg] / (rankConstant + rank + 1);
+            }
+        }
+        return top(merged, topK);
+    }
+
+    /**
+     * 加权分数融合
+     *
+     * @param legs    各路结果
+     * @param weights 各路权重
+     * @param idOf    文档 id
+     * @param scoreOf 原始分数
+     * @param topK    返回条数
+     */
+    public static <T> List<Fused<T>> weighted(List<List<T>> legs, double[] weights, Function<T, String> idOf,
+                                              ToDoubleFunction<T> scoreOf, int topK) {
+        Map<String, Accumulator<T>> merged = new LinkedHashMap<>();
+        for (int leg = 0; leg < legs.size(); leg++) {
+            List<T> items = legs.get(leg);
+            double min = Double.MAX_VALUE;
+            double max = -Double.MAX_VALUE;
+            for (T item : items) {
+                double score = scoreOf.applyAsDouble(item);
+                min = Math.min(min, score);
+                max = Math.max(max, score);
+            }
+            double range = max - min;
+            for (T item : items) {
+                // 只有一条结果或分数全部相同时，视为满分
+                double normalized = range > 0 ? (scoreOf.applyAsDouble(item) - min) / range : 1.0;
+                merged.computeIfAbsent(idOf.apply(item), id -> new Accumulator<>(item)).score +=
+                    weights[leg] * normalized;
+            }
+        }
+        return top(merged, topK);
+    }
+
+    private static <T> List<Fused<T>> top(Map<String, Accumulator<T>> merged, int topK) {
+        if (topK <= 0) {
+            return List.of();
+        }
+        Comparator<Accumulator<T>> byScore = Comparator.comparingDouble(a -> a.score);
+        PriorityQueue<Accumulator<T>> heap = new PriorityQueue<>(topK, byScore);
+        for (Accumulator<T> candidate : merged.values()) {
+            if (heap.size() < topK) {
+                heap.add(candidate);
+            } else if (candidate.score > heap.peek().score) {
+                heap.poll();
+                heap.add(candidate);
+            }
+        }
+        List<Fused<T>> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            Accumulator<T> accumulator = heap.poll();
+            result.add(new Fused<>(accumulator.item, accumulator.score));
+        }
+        // 小顶堆依次弹出为升序，翻转为降序
+        Collections.reverse(result);
+        return result;
+    }
+
+    private static final class Accumulator<T> {
+        private final T item;
+        private double score;
+
+        private Accumulator(T item) {
+            this.item = item;
+        }
+    }
+}
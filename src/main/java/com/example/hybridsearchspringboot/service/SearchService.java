@@ -1,16 +1,16 @@
 package com.example.hybridsearchspringboot.service;
 
-import com.example.hybridsearchspringboot.model.SearchResult;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.VectorStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.beans.factory.annotation.Autowired;
 import com.fasterxml.jackson.databind.JsonNode;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -21,62 +21,74 @@ public class SearchService {
     private final ElasticsearchService elasticsearchService;
     private final ModelLoader modelLoader;
     private final ObjectMapper objectMapper;
-    @Autowired
-    private EmbeddingService embeddingService;
+    private final ExecutorService searchExecutor;
+
+    private static final int DEFAULT_SIZE = 10;
 
     /**
      * 执行混合搜索
      */
-    public SearchResponse hybridSearch(String query, int size) {
+    public Map<String, Object> hybridSearch(String query) {
+        return hybridSearch(query, DEFAULT_SIZE);
+    }
+
+    /**
+     * 执行混合搜索，返回结构与异步接口相同
+     * <p>
+     * 查询向量在 ElasticsearchService 中通过 QueryEmbeddingCache 获取，热门查询直接命中缓存。
+     */
+    public Map<String, Object> hybridSearch(String query, int size) {
         try {
-            // 生成查询向量
-            float[] queryVector = embeddingService.generateEmbedding(query);
-            
-            // 执行向量搜索
-            List<SearchResult> results = elasticsearchService.vectorSearch(queryVector, size);
-            
-            // 生成结构化响应
-            String structuredResponse = modelLoader.generateStructuredResponse(query, results);
-            
-            // 解析结构化响应
-            JsonNode jsonNode = objectMapper.readTree(structuredResponse);
-            
-            // 构建返回结果
-            SearchResponse response = new SearchResponse();
-            response.setSummary(jsonNode.get("summary").asText());
-            
-            // 处理推荐结果
-            List<Recommendation> recommendations = new ArrayList<>();
-            JsonNode recommendationsNode = jsonNode.get("recommendations");
-            if (recommendationsNode != null && recommendationsNode.isArray()) {
-                for (JsonNode recNode : recommendationsNode) {
-                    Recommendation rec = new Recommendation();
-                    rec.setAid(recNode.get("aid").asText());
-                    rec.setTitle(recNode.get("title").asText());
-                    rec.setScore(recNode.get("score").asDouble());
-                    rec.setPoster(recNode.get("poster").asText());
-                    recommendations.add(rec);
-                }
-            }
-            response.setRecommendations(recommendations);
-            
-            // 处理建议问题
-            List<String> suggestions = new ArrayList<>();
-            JsonNode suggestionsNode = jsonNode.get("suggestions");
-            if (suggestionsNode != null && suggestionsNode.isArray()) {
-                for (JsonNode sugNode : suggestionsNode) {
-                    suggestions.add(sugNode.asText());
-                }
-            }
-            response.setSuggestions(suggestions);
-            
-            // 添加时间信息
-            response.setSearchTime(System.currentTimeMillis());
-            
-            return response;
+            Map<String, Object> search = elasticsearchService.hybridSearch(query, size);
+            return buildResponse(query, search, modelLoader.recognizeEntitiesAndExpansions(query));
         } catch (Exception e) {
             log.error("混合搜索失败", e);
             throw new RuntimeException("混合搜索失败", e);
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 异步混合检索，LLM 实体识别与混合检索并发执行，两者完成后再生成结构化回复
+     * <p>
+     * LLM 等阻塞步骤在搜索扇出执行器上运行，虚拟线程模式下每一步各占一个虚拟线程，等待期间不占用请求线程。
+     */
+    public CompletableFuture<Map<String, Object>> hybridSearchAsync(String query, int size) {
+        CompletableFuture<Map<String, Object>> entitiesFuture = CompletableFuture.supplyAsync(
+            () -> modelLoader.recognizeEntitiesAndExpansions(query), searchExecutor);
+        CompletableFuture<Map<String, Object>> searchFuture = elasticsearchService.hybridSearchAsync(query, size);
+
+        return searchFuture.thenCombineAsync(entitiesFuture,
+            (search, entities) -> buildResponse(query, search, entities), searchExecutor);
+    }
+
+    /**
+     * 合并检索结果和实体识别结果，并生成结构化回复
+     */
+    private Map<String, Object> buildResponse(String query, Map<String, Object> search, Map<String, Object> entities) {
+        Map<String, Object> response = new HashMap<>(search);
+        response.put("entitiesAndExpansions", entities);
+        response.put("structuredResponse", generateStructuredResponse(query, search, entities));
+        return response;
+    }
+
+    private JsonNode generateStructuredResponse(String query, Map<String, Object> search,
+                                                Map<String, Object> entitiesAndExpansions) {
+        List<?> hits = (List<?>) search.get("hybridResults");
+        Map<String, Object> entities = new HashMap<>(entitiesAndExpansions);
+        Object expansions = entities.remove("expansion_terms");
+
+        Map<String, Object> searchResults = new HashMap<>();
+        searchResults.put("results", hits.stream()
+            .map(hit -> objectMapper.convertValue(hit, Map.class))
+            .collect(Collectors.toList()));
+        searchResults.put("entities", entities);
+        searchResults.put("expansions", expansions != null ? expansions : List.of());
+        searchResults.put("total", hits.size());
+        try {
+            return objectMapper.readTree(modelLoader.generateStructuredResponse(query, searchResults));
+        } catch (Exception e) {
+            log.error("解析结构化响应失败", e);
+            return objectMapper.createObjectNode();
+        }
+    }
+}
@@ -1,4 +1,4 @@
-package com.example.hybridsearchspringboot.service;
+package com.example.hybridsearchspringboot.tokenizer;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -8,7 +8,10 @@ import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 import jakarta.annotation.PostConstruct;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 @Service
@@ -17,8 +20,8 @@ public class BGETokenizer {
     private static final String VOCAB_PATH = "models/bge-small-zh-v1.5/vocab.txt";
     private static final String TOKENIZER_CONFIG_PATH = "models/bge-small-zh-v1.5/tokenizer_config.json";
     private static final String SPECIAL_TOKENS_PATH = "models/bge-small-zh-v1.5/special_tokens_map.json";
-    
-    private Map<String, Integer> vocab;
+
+    private WordPieceTokenizer wordPiece;
     private int maxLength;
     private int padTokenId;
     private int unkTokenId;
@@ -26,17 +29,25 @@ public class BGETokenizer {
     private int sepTokenId;
     private int maskTokenId;
 
+    /**
+     * 每个线程复用的分词缓冲区，避免每次分词都分配 maxLength 大小的数组
+     */
+    private final ThreadLocal<int[]> tokenBuffer = ThreadLocal.withInitial(() -> new int[maxLength]);
+
     @PostConstruct
     public void init() throws IOException {
         try {
-            // 加载词表
+            // 加载词表，行号即 token id
             ClassPathResource vocabResource = new ClassPathResource(VOCAB_PATH);
-            vocab = new HashMap<>();
-            try (Scanner scanner = new Scanner(vocabResource.getInputStream())) {
-                int index = 0;
-                while (scanner.hasNextLine()) {
-                    String token = scanner.nextLine().trim();
-                    vocab.put(token, index++);
+            List<String> vocab = new ArrayList<>();
+            Map<String, Integer> tokenIds = new HashMap<>();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(vocabResource.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String token = line.trim();
+                    tokenIds.put(token, vocab.size());
+                    vocab.add(token);
                 }
             }
 
@@ -44,55 +55,53 @@ public class BGETokenizer {
             ClassPathResource configResource = new ClassPathResource(TOKENIZER_CONFIG_PATH);
             ObjectMapper mapper = new ObjectMapper();
             JsonNode config = mapper.readTree(configResource.getInputStream());
-            
+
             // 设置最大长度
             maxLength = 512; // BGE-small-zh-v1.5 的默认最大长度
 
             // 加载特殊token
             ClassPathResource specialTokensResource = new ClassPathResource(SPECIAL_TOKENS_PATH);
             JsonNode specialTokens = mapper.readTree(specialTokensResource.getInputStream());
-            
-            padTokenId = vocab.get(specialTokens.get("pad_token").asText());
-            unkTokenId = vocab.get(specialTokens.get("unk_token").asText());
-            clsTokenId = vocab.get(specialTokens.get("cls_token").asText());
-            sepTokenId = vocab.get(specialTokens.get("sep_token").asText());
-            maskTokenId = vocab.get(specialTokens.get("mask_token").asText());
-
-            logger.info("BGE Tokenizer加载成功");
+
+            padTokenId = tokenIds.get(specialTokens.get("pad_token").asText());
+            unkTokenId = tokenIds.get(specialTokens.get("unk_token").asText());
+            clsTokenId = tokenIds.get(specialTokens.get("cls_token").asText());
+            sepTokenId = tokenIds.get(specialTokens.get("sep_token").asText());
+            maskTokenId = tokenIds.get(specialTokens.get("mask_token").asText());
+
+            wordPiece = new WordPieceTokenizer(vocab, unkTokenId, clsTokenId, sepTokenId);
+
+            logger.info("BGE Tokenizer加载成功，词表大小: {}", vocab.size());
         } catch (Exception e) {
             logger.error("BGE Tokenizer加载失败", e);
             throw new RuntimeException("BGE Tokenizer加载失败", e);
         }
     }
 
+    /**
+     * 分词，返回实际长度的 token ids（含 [CLS]/[SEP]），不做填充
+     */
     public int[] tokenize(String text) {
-        try {
-            // 1. 添加特殊token
-            List<Integer> tokenIds = new ArrayList<>();
-            tokenIds.add(clsTokenId);
-
-            // 2. 分词
-            String[] tokens = text.split("\\s+");
-            for (String token : tokens) {
-                // 3. 转换为token ids
-                Integer tokenId = vocab.get(token);
-                if (tokenId == null) {
-                    tokenId = unkTokenId;
-                }
-                tokenIds.add(tokenId);
-            }
-
-            // 4. 添加结束token
-            tokenIds.add(sepTokenId);
+        return tokenize(text, maxLength);
+    }
 
-            // 5. 截断或填充到指定长度
-            int[] result = new int[maxLength];
-            Arrays.fill(result, padTokenId);
-            for (int i = 0; i < Math.min(tokenIds.size(), maxLength); i++) {
-                result[i] = tokenIds.get(i);
-            }
+    /**
+     * 分词并按指定上限截断，返回实际长度的 token ids（含 [CLS]/[SEP]），不做填充
+     */
+    public int[] tokenize(String text, int maxTokens) {
+        int[] buffer = tokenBuffer.get();
+        int count = encode(text, buffer, maxTokens);
+        return Arrays.copyOf(buffer, count);
+    }
 
-            return result;
+    /**
+     * 分词结果直接写入调用方提供的缓冲区，适合批量索引等高频场景
+     *
+     * @return 写入的 token 数
+     */
+    public int encode(String text, int[] out, int maxTokens) {
+        try {
+            return wordPiece.encode(text, out, Math.min(maxTokens, maxLength));
         } catch (Exception e) {
             logger.error("分词失败: {}", e.getMessage(), e);
             throw new RuntimeException("分词失败", e);
@@ -106,4 +115,8 @@ public class BGETokenizer {
         }
         return attentionMask;
     }
-} 
\ No newline at end of file
+
+    public int getPadTokenId() {
+        return padTokenId;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.hybridsearchspringboot.tokenizer;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 只读的紧凑字符前缀树，用于 WordPiece 的贪心最长匹配
+ * <p>
+ * 构建完成后所有节点展开为基本类型数组：每个节点的出边按字符有序存放在
+ * {@code edgeLabels}/{@code edgeTargets} 的连续区间中，查找子节点使用二分查找，
+ * 匹配过程不产生任何对象分配。
+ */
+final class VocabTrie {
+
+    private static final int NO_VALUE = -1;
+
+    /**
+     * 节点 n 的出边位于 [edgeStart[n], edgeStart[n + 1])
+     */
+    private final int[] edgeStart;
+    private final char[] edgeLabels;
+    private final int[] edgeTargets;
+    /**
+     * 节点对应的 token id，不是完整 token 时为 -1
+     */
+    private final int[] values;
+
+    private VocabTrie(int[] edgeStart, char[] edgeLabels, int[] edgeTargets, int[] values) {
+        this.edgeStart = edgeStart;
+        this.edgeLabels = edgeLabels;
+        this.edgeTargets = edgeTargets;
+        this.values = values;
+    }
+
+    /**
+     * 在 text[from, to) 中从 from 开始做最长匹配
+     *
+     * @return 未匹配时返回 -1，否则高 32 位为匹配结束位置（不含），低 32 位为 token id
+     */
+    long longestMatch(char[] text, int from, int to) {
+        int node = 0;
+        int matchedId = NO_VALUE;
+        int matchedEnd = -1;
+        for (int i = from; i < to; i++) {
+            node = child(node, text[i]);
+            if (node < 0) {
+                break;
+            }
+            if (values[node] != NO_VALUE) {
+                matchedId = values[node];
+                matchedEnd = i + 1;
+            }
+        }
+        return matchedId == NO_VALUE ? -1L : ((long) matchedEnd << 32) | matchedId;
+    }
+
+    /**
+     * 精确查找 text[from, to)
+     *
+     * @return token id，不存在时返回 -1
+     */
+    int get(char[] text, int from, int to) {
+        int node = 0;
+        for (int i = from; i < to && node >= 0; i++) {
+            node = child(node, text[i]);
+        }
+        return node < 0 ? NO_VALUE : values[node];
+    }
+
+    private int child(int node, char c) {
+        int index = Arrays.binarySearch(edgeLabels, edgeStart[node], edgeStart[node + 1], c);
+        return index < 0 ? -1 : edgeTargets[index];
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    static final class Builder {
+
+        private final MutableNode root = new MutableNode();
+        private int nodeCount = 1;
+
+        Builder add(CharSequence token, int id) {
+            MutableNode node = root;
+            for (int i = 0; i < token.length(); i++) {
+                MutableNode next = node.children.get(token.charAt(i));
+                if (next == null) {
+                    next = new MutableNode();
+                    node.children.put(token.charAt(i), next);
+                    nodeCount++;
+                }
+                node = next;
+            }
+            // 重复的 token 以最后一次出现为准，与原先 HashMap 加载词表的行为一致
+            node.value = id;
+            return this;
+        }
+
+        VocabTrie build() {
+            int[] edgeStart = new int[nodeCount + 1];
+            char[] edgeLabels = new char[nodeCount - 1];
+            int[] edgeTargets = new int[nodeCount - 1];
+            int[] values = new int[nodeCount];
+
+            // 广度优先编号，保证同一节点的出边连续且按字符有序
+            Deque<MutableNode> queue = new ArrayDeque<>();
+            root.index = 0;
+            queue.add(root);
+            int nextIndex = 1;
+            int edge = 0;
+            while (!queue.isEmpty()) {
+                MutableNode node = queue.poll();
+                values[node.index] = node.value;
+                edgeStart[node.index] = edge;
+                for (Map.Entry<Character, MutableNode> entry : node.children.entrySet()) {
+                    MutableNode child = entry.getValue();
+                    child.index = nextIndex++;
+                    edgeLabels[edge] = entry.getKey();
+                    edgeTargets[edge] = child.index;
+                    edge++;
+                    queue.add(child);
+                }
+            }
+            edgeStart[nodeCount] = edge;
+            return new VocabTrie(edgeStart, edgeLabels, edgeTargets, values);
+        }
+    }
+
+    private static final class MutableNode {
+        private final TreeMap<Character, MutableNode> children = new TreeMap<>();
+        private int value = NO_VALUE;
+        private int index;
+    }
+}
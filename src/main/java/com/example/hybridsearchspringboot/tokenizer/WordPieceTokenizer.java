@@ -0,0 +1,201 @@
+package com.example.hybridsearchspringboot.tokenizer;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * BERT 风格的 BasicTokenizer + WordPiece 分词实现
+ * <p>
+ * 处理流程与 HuggingFace {@code BertTokenizer}（do_lower_case=true）一致：
+ * 清理控制字符、转小写并去除重音、中日韩字符逐字切分、标点单独成词、空白切分，
+ * 然后对每个词做贪心最长匹配的 WordPiece 切分。
+ * <p>
+ * 实例不可变，可在多线程间共享；结果直接写入调用方提供的 {@code int[]}，不装箱。
+ */
+public final class WordPieceTokenizer {
+
+    private static final String CONTINUATION_PREFIX = "##";
+    private static final int MAX_INPUT_CHARS_PER_WORD = 100;
+
+    private final VocabTrie wordStarts;
+    private final VocabTrie continuations;
+    private final int unkTokenId;
+    private final int clsTokenId;
+    private final int sepTokenId;
+
+    private final ThreadLocal<char[]> wordBuffer = ThreadLocal.withInitial(() -> new char[MAX_INPUT_CHARS_PER_WORD + 2]);
+
+    /**
+     * @param vocab 词表，下标即 token id
+     */
+    public WordPieceTokenizer(List<String> vocab, int unkTokenId, int clsTokenId, int sepTokenId) {
+        VocabTrie.Builder starts = VocabTrie.builder();
+        VocabTrie.Builder pieces = VocabTrie.builder();
+        for (int id = 0; id < vocab.size(); id++) {
+            String token = vocab.get(id);
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (token.startsWith(CONTINUATION_PREFIX) && token.length() > CONTINUATION_PREFIX.length()) {
+                pieces.add(token.substring(CONTINUATION_PREFIX.length()), id);
+            } else {
+                starts.add(token, id);
+            }
+        }
+        this.wordStarts = starts.build();
+        this.continuations = pieces.build();
+        this.unkTokenId = unkTokenId;
+        this.clsTokenId = clsTokenId;
+        this.sepTokenId = sepTokenId;
+    }
+
+    /**
+     * 分词并写入 out，结果以 [CLS] 开头、[SEP] 结尾
+     *
+     * @param maxTokens 包含特殊 token 在内的最大长度，超出部分截断
+     * @return 写入的 token 数
+     */
+    public int encode(String text, int[] out, int maxTokens) {
+        int limit = Math.min(maxTokens, out.length);
+        if (limit < 2) {
+            throw new IllegalArgumentException("maxTokens 至少为 2");
+        }
+        // 预留 [SEP] 的位置
+        int contentLimit = limit - 1;
+        int count = 0;
+        out[count++] = clsTokenId;
+
+        String normalized = normalize(text);
+        char[] word = wordBuffer.get();
+        int wordLength = 0;
+        boolean wordOverflow = false;
+
+        int i = 0;
+        int length = normalized.length();
+        while (i < length && count < contentLimit) {
+            int cp = normalized.codePointAt(i);
+            int charCount = Character.charCount(cp);
+            i += charCount;
+
+            if (cp == 0 || cp == 0xFFFD || isControl(cp) || Character.getType(cp) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (isWhitespace(cp)) {
+                count = flushWord(word, wordLength, wordOverflow, out, count, contentLimit);
+                wordLength = 0;
+                wordOverflow = false;
+                continue;
+            }
+            if (isChineseChar(cp) || isPunctuation(cp)) {
+                count = flushWord(word, wordLength, wordOverflow, out, count, contentLimit);
+                wordLength = 0;
+                wordOverflow = false;
+                if (count < contentLimit) {
+                    // 单字/单个标点直接精确查表
+                    Character.toChars(cp, word, 0);
+                    int id = wordStarts.get(word, 0, charCount);
+                    out[count++] = id < 0 ? unkTokenId : id;
+                }
+                continue;
+            }
+            if (wordLength + charCount > MAX_INPUT_CHARS_PER_WORD) {
+                wordOverflow = true;
+            } else {
+                Character.toChars(cp, word, wordLength);
+                wordLength += charCount;
+            }
+        }
+        if (count < contentLimit) {
+            count = flushWord(word, wordLength, wordOverflow, out, count, contentLimit);
+        }
+
+        out[count++] = sepTokenId;
+        return count;
+    }
+
+    /**
+     * 对一个词做 WordPiece 切分，任一片段无法匹配时整个词记为 [UNK]
+     */
+    private int flushWord(char[] word, int wordLength, boolean overflow, int[] out, int count, int contentLimit) {
+        if (wordLength == 0 && !overflow) {
+            return count;
+        }
+        if (overflow) {
+            out[count++] = unkTokenId;
+            return count;
+        }
+        int wordStart = count;
+        int start = 0;
+        while (start < wordLength) {
+            VocabTrie trie = start == 0 ? wordStarts : continuations;
+            long match = trie.longestMatch(word, start, wordLength);
+            if (match < 0) {
+                out[wordStart] = unkTokenId;
+                return wordStart + 1;
+            }
+            // 超出长度的片段不写入，但仍需匹配完整个词以确认是否应记为 [UNK]
+            if (count < contentLimit) {
+                out[count++] = (int) match;
+            }
+            start = (int) (match >>> 32);
+        }
+        return count;
+    }
+
+    /**
+     * 转小写并做 NFD 分解，重音符号在扫描时作为 Mn 字符跳过
+     */
+    private static String normalize(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        return Normalizer.isNormalized(lower, Normalizer.Form.NFD)
+            ? lower
+            : Normalizer.normalize(lower, Normalizer.Form.NFD);
+    }
+
+    private static boolean isWhitespace(int cp) {
+        return cp == ' ' || cp == '\t' || cp == '\n' || cp == '\r'
+            || Character.getType(cp) == Character.SPACE_SEPARATOR;
+    }
+
+    private static boolean isControl(int cp) {
+        if (cp == '\t' || cp == '\n' || cp == '\r') {
+            return false;
+        }
+        int type = Character.getType(cp);
+        return type == Character.CONTROL || type == Character.FORMAT;
+    }
+
+    private static boolean isPunctuation(int cp) {
+        // 与 BERT 一致：所有非字母数字的 ASCII 可见字符都视为标点
+        if ((cp >= 33 && cp <= 47) || (cp >= 58 && cp <= 64) || (cp >= 91 && cp <= 96) || (cp >= 123 && cp <= 126)) {
+            return true;
+        }
+        switch (Character.getType(cp)) {
+            case Character.CONNECTOR_PUNCTUATION:
+            case Character.DASH_PUNCTUATION:
+            case Character.START_PUNCTUATION:
+            case Character.END_PUNCTUATION:
+            case Character.INITIAL_QUOTE_PUNCTUATION:
+            case Character.FINAL_QUOTE_PUNCTUATION:
+            case Character.OTHER_PUNCTUATION:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * CJK 统一表意文字区块，与 BERT 的 _is_chinese_char 范围一致
+     */
+    private static boolean isChineseChar(int cp) {
+        return (cp >= 0x4E00 && cp <= 0x9FFF)
+            || (cp >= 0x3400 && cp <= 0x4DBF)
+            || (cp >= 0x20000 && cp <= 0x2A6DF)
+            || (cp >= 0x2A700 && cp <= 0x2B73F)
+            || (cp >= 0x2B740 && cp <= 0x2B81F)
+            || (cp >= 0x2B820 && cp <= 0x2CEAF)
+            || (cp >= 0xF900 && cp <= 0xFAFF)
+            || (cp >= 0x2F800 && cp <= 0x2FA1F);
+    }
+}
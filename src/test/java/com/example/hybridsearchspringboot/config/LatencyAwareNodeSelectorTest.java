@@ -0,0 +1,85 @@
+package com.example.hybridsearchspringboot.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.Node;
+import org.elasticsearch.client.NodeSelector;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyAwareNodeSelectorTest {
+
+    private static final HttpHost A = new HttpHost("es-a", 9200, "http");
+    private static final HttpHost B = new HttpHost("es-b", 9200, "http");
+    private static final HttpHost C = new HttpHost("es-c", 9200, "http");
+
+    @Test
+    void skipsNodesMuchSlowerThanTheFastest() {
+        LatencyAwareNodeSelector selector = new LatencyAwareNodeSelector(1.0, 3.0, 60_000);
+        selector.record(A, 10_000_000);
+        selector.record(B, 20_000_000);
+        selector.record(C, 50_000_000);
+
+        List<Node> nodes = nodes(A, B, C);
+        selector.select(nodes);
+
+        assertEquals(List.of(A, B), nodes.stream().map(Node::getHost).toList());
+    }
+
+    @Test
+    void keepsUnsampledNodesAndProbesStaleSlowNodes() {
+        LatencyAwareNodeSelector selector = new LatencyAwareNodeSelector(1.0, 3.0, 0);
+        selector.record(A, 10_000_000);
+        selector.record(B, 90_000_000);
+
+        List<Node> nodes = nodes(A, B, C);
+        selector.select(nodes);
+
+        assertEquals(3, nodes.size());
+    }
+
+    @Test
+    void samplesOnlySearchEndpoints() {
+        assertTrue(LatencyAwareNodeSelector.isSampled("/new_movies_index/_search?typed_keys=true"));
+        assertTrue(LatencyAwareNodeSelector.isSampled("/_msearch"));
+        assertTrue(LatencyAwareNodeSelector.isSampled("/movies/_knn_search"));
+
+        assertFalse(LatencyAwareNodeSelector.isSampled("/_bulk"));
+        assertFalse(LatencyAwareNodeSelector.isSampled("/_search/scroll"));
+        assertFalse(LatencyAwareNodeSelector.isSampled("/_tasks/abc:12"));
+        assertFalse(LatencyAwareNodeSelector.isSampled("/_cluster/health/movies_v1?wait_for_status=green&timeout=20s"));
+    }
+
+    @Test
+    void parsesSniffedNodesAndSkipsDedicatedMasters() throws Exception {
+        String body = """
+            {"nodes": {
+              "n1": {"name": "master-1", "version": "8.15.5", "roles": ["master"],
+                     "http": {"publish_address": "10.0.0.1:9200"}},
+              "n2": {"name": "data-1", "version": "8.15.5", "roles": ["data", "ingest"],
+                     "http": {"publish_address": "es-data-1/10.0.0.2:9200"}},
+              "n3": {"name": "data-2", "version": "8.15.5", "roles": ["data"]}
+            }}
+            """;
+        List<Node> nodes = new ArrayList<>(ElasticsearchNodeSniffer.parseNodes(new ObjectMapper().readTree(body), "http"));
+        assertEquals(2, nodes.size());
+
+        NodeSelector.SKIP_DEDICATED_MASTERS.select(nodes);
+        assertEquals(1, nodes.size());
+        assertEquals(new HttpHost("es-data-1", 9200, "http"), nodes.get(0).getHost());
+    }
+
+    private static List<Node> nodes(HttpHost... hosts) {
+        List<Node> nodes = new ArrayList<>();
+        for (HttpHost host : hosts) {
+            nodes.add(new Node(host));
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.hybridsearchspringboot.service;
+
+import co.elastic.clients.elasticsearch._types.ErrorCause;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import com.example.hybridsearchspringboot.config.IndexConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkIngestPipelineTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    private IndexConfig config;
+
+    /**
+     * 每次 bulk 请求的文档 id，按发送顺序记录
+     */
+    private final List<List<String>> requests = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        config = new IndexConfig();
+        config.setIncremental(false);
+        config.setEmbedBatchSize(10);
+        config.setEmbedWorkers(1);
+        config.setQueueCapacity(4);
+        config.setBulkMaxDocs(40);
+        config.setBulkMinDocs(10);
+        config.setBulkMaxBytes(Long.MAX_VALUE);
+        // 同一时间只有一个请求在途，请求顺序确定
+        config.setBulkMaxInFlight(1);
+        config.setBulkMaxRetries(2);
+        config.setBulkInitialBackoffMs(1);
+        config.setBulkMaxBackoffMs(5);
+        config.setDeadLetterPath(tempDir.resolve("dead-letter.jsonl").toString());
+    }
+
+    @Test
+    void retriesRejectedItemsUntilIndexed() {
+        BulkIngestPipeline pipeline = pipeline((call, ids) -> call == 0 ? response(ids, id -> 429) : ok(ids));
+
+        BulkIngestPipeline.Result result = pipeline.ingest("movies", documents(30).iterator());
+
+        assertEquals(30, result.indexed());
+        assertEquals(0, result.failed());
+        assertEquals(requests.get(0), requests.get(1));
+        assertTrue(Files.notExists(tempDir.resolve("dead-letter.jsonl")));
+    }
+
+    @Test
+    void shrinksBulkOnRejectionAndGrowsBack() {
+        BulkIngestPipeline pipeline = pipeline((call, ids) -> call == 0 ? response(ids, id -> 429) : ok(ids));
+
+        BulkIngestPipeline.Result result = pipeline.ingest("movies", documents(200).iterator());
+
+        assertEquals(200, result.indexed());
+        List<Integer> sizes = requests.stream().map(List::size).toList();
+        assertEquals(40, sizes.get(0));
+        // 第二个请求是被拒绝文档的重试，之后的新请求按减半后的批大小切分
+        assertEquals(40, sizes.get(1));
+        assertTrue(sizes.get(2) <= 22, "拒绝后批大小应减半: " + sizes);
+        assertTrue(sizes.subList(3, sizes.size()).stream().anyMatch(size -> size > sizes.get(2)),
+            "写入顺利后批大小应逐步恢复: " + sizes);
+    }
+
+    @Test
+    void deadLettersPermanentErrorsAndExhaustedRetries() throws Exception {
+        BulkIngestPipeline pipeline = pipeline((call, ids) -> response(ids, id -> switch (id) {
+            case "movie_3" -> 400;
+            case "movie_7" -> 429;
+            default -> 201;
+        }));
+
+        BulkIngestPipeline.Result result = pipeline.ingest("movies", documents(20).iterator());
+
+        assertEquals(18, result.indexed());
+        assertEquals(2, result.failed());
+        // 400 不重试；429 首次发送加 2 次重试
+        assertEquals(1, requests.stream().filter(ids -> ids.contains("movie_3")).count());
+        assertEquals(3, requests.stream().filter(ids -> ids.contains("movie_7")).count());
+
+        Map<String, JsonNode> entries = new HashMap<>();
+        for (String line : Files.readAllLines(tempDir.resolve("dead-letter.jsonl"))) {
+            JsonNode entry = MAPPER.readTree(line);
+            entries.put(entry.get("id").asText(), entry);
+        }
+        assertEquals(2, entries.size());
+        assertEquals(400, entries.get("movie_3").get("status").asInt());
+        assertEquals(429, entries.get("movie_7").get("status").asInt());
+        assertEquals("movies", entries.get("movie_7").get("index").asText());
+        assertTrue(entries.get("movie_7").get("document").has("title"));
+        assertFalse(entries.get("movie_7").get("document").has(DocumentFingerprint.VECTOR_FIELD));
+    }
+
+    @Test
+    void retriesWhenRequestOrResponseHandlingFails() {
+        BulkIngestPipeline pipeline = pipeline((call, ids) -> switch (call) {
+            case 0 -> CompletableFuture.failedFuture(new RuntimeException("connection reset"));
+            // 响应条数与请求不一致，响应处理失败
+            case 1 -> ok(ids.subList(0, 1));
+            default -> ok(ids);
+        });
+        AtomicLong completed = new AtomicLong();
+
+        BulkIngestPipeline.Result result = pipeline.ingest("movies", documents(25).iterator(),
+            (done, indexed, failed) -> completed.accumulateAndGet(done, Math::max));
+
+        assertEquals(25, result.indexed());
+        assertEquals(0, result.failed());
+        assertEquals(25, completed.get());
+    }
+
+    @Test
+    void deadLettersBatchesWhoseEmbeddingFails() throws Exception {
+        BulkIngestPipeline pipeline = pipeline(new FixedEmbeddingService("影片 12"), (call, ids) -> ok(ids));
+
+        BulkIngestPipeline.Result result = pipeline.ingest("movies", documents(30).iterator());
+
+        // 推理按 10 条一批，影片 12 所在的整批失败
+        assertEquals(20, result.indexed());
+        assertEquals(10, result.failed());
+        List<String> lines = Files.readAllLines(tempDir.resolve("dead-letter.jsonl"));
+        assertEquals(10, lines.size());
+        for (String line : lines) {
+            JsonNode entry = MAPPER.readTree(line);
+            assertEquals(0, entry.get("status").asInt());
+            assertTrue(entry.get("reason").asText().contains("推理失败"));
+            assertFalse(entry.get("document").has(DocumentFingerprint.CONTENT_HASH));
+        }
+    }
+
+    /**
+     * @param bulk 按请求序号和文档 id 返回 bulk 结果
+     */
+    private BulkIngestPipeline pipeline(BiFunction<Integer, List<String>, CompletableFuture<BulkResponse>> bulk) {
+        return pipeline(new FixedEmbeddingService(null), bulk);
+    }
+
+    private BulkIngestPipeline pipeline(EmbeddingService embeddingService,
+                                        BiFunction<Integer, List<String>, CompletableFuture<BulkResponse>> bulk) {
+        ModelLoader modelLoader = new ModelLoader(embeddingService, null, null, MAPPER);
+        return new BulkIngestPipeline(modelLoader, null, null, config, MAPPER) {
+            @Override
+            CompletableFuture<BulkResponse> bulk(BulkRequest request) {
+                List<String> ids = request.operations().stream().map(BulkIngestPipelineTest::id).toList();
+                int call;
+                synchronized (requests) {
+                    call = requests.size();
+                    requests.add(ids);
+                }
+                return bulk.apply(call, ids);
+            }
+        };
+    }
+
+    private static String id(BulkOperation operation) {
+        return operation.isIndex() ? operation.index().id() : operation.update().id();
+    }
+
+    /**
+     * 不可变文档，流水线不能修改调用方传入的 Map
+     */
+    private static List<Map<String, Object>> documents(int count) {
+        List<Map<String, Object>> docs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            docs.add(Map.<String, Object>of("aid", "movie_" + i, "title", "影片 " + i));
+        }
+        return docs;
+    }
+
+    private static CompletableFuture<BulkResponse> ok(List<String> ids) {
+        return response(ids, id -> 201);
+    }
+
+    private static CompletableFuture<BulkResponse> response(List<String> ids,
+                                                            Function<String, Integer> status) {
+        List<BulkResponseItem> items = new ArrayList<>();
+        boolean errors = false;
+        for (String id : ids) {
+            int code = status.apply(id);
+            errors |= code >= 300;
+            items.add(BulkResponseItem.of(item -> {
+                item.operationType(OperationType.Index).index("movies").id(id).status(code);
+                if (code >= 300) {
+                    item.error(ErrorCause.of(e -> e
+                        .type(code == 429 ? "es_rejected_execution_exception" : "document_parsing_exception")
+                        .reason("status " + code)));
+                }
+                return item;
+            }));
+        }
+        boolean hasErrors = errors;
+        return CompletableFuture.completedFuture(BulkResponse.of(r -> r.errors(hasErrors).took(1).items(items)));
+    }
+
+    /**
+     * 每条文本返回固定向量，批内含 failingText 时整批失败
+     */
+    private static final class FixedEmbeddingService implements EmbeddingService {
+        private final String failingText;
+
+        private FixedEmbeddingService(String failingText) {
+            this.failingText = failingText;
+        }
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public float[] generateEmbedding(String text) {
+            return new float[]{1f, 0f};
+        }
+
+        @Override
+        public List<float[]> generateEmbeddings(List<String> texts) {
+            if (texts.contains(failingText)) {
+                throw new RuntimeException("推理失败: " + failingText);
+            }
+            return texts.stream().map(this::generateEmbedding).toList();
+        }
+
+        @Override
+        public String getModelIdentity() {
+            return "test/FP32/0";
+        }
+
+        @Override
+        public int getVectorDimension() {
+            return 2;
+        }
+    }
+}
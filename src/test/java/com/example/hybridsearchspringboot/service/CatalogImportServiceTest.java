@@ -0,0 +1,146 @@
+package com.example.hybridsearchspringboot.service;
+
+import com.example.hybridsearchspringboot.model.ImportProgress;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CatalogImportServiceTest {
+
+    private static final int COUNT = 10;
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * 写入索引的文档 id，按导入顺序记录
+     */
+    private final List<String> imported = new ArrayList<>();
+
+    /**
+     * 处理完这么多条文档后导入失败，模拟中途中断
+     */
+    private int failAfter = Integer.MAX_VALUE;
+
+    private CatalogImportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new CatalogImportService(new RecordingElasticsearchService(), new ObjectMapper());
+        ReflectionTestUtils.setField(service, "progressIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(service, "importDirectory", tempDir.toString());
+    }
+
+    @Test
+    void importsEveryDocumentOnce() throws IOException {
+        Path file = writeJsonl("movies.jsonl", false);
+
+        ImportProgress progress = service.importFile(file, 0, false);
+
+        assertEquals(ImportProgress.Status.COMPLETED, progress.status());
+        assertEquals(ids(0, COUNT), imported);
+        // 从结束偏移续传时没有剩余文档
+        ImportProgress resumed = service.importFile(file, progress.resumeOffset(), false);
+        assertEquals(ImportProgress.Status.COMPLETED, resumed.status());
+        assertEquals(0, resumed.documents());
+        assertEquals(ids(0, COUNT), imported);
+    }
+
+    @Test
+    void resumesFromOffsetWithoutDuplicatesOrGaps() throws IOException {
+        assertResumes(writeJsonl("movies.jsonl", false));
+    }
+
+    @Test
+    void resumesGzipFromOffsetWithoutDuplicatesOrGaps() throws IOException {
+        assertResumes(writeJsonl("movies.jsonl.gz", true));
+    }
+
+    @Test
+    void rejectsFilesOutsideImportDirectory() throws IOException {
+        writeJsonl("movies.jsonl", false);
+        Path outside = Files.writeString(tempDir.resolveSibling(tempDir.getFileName() + "-secret.jsonl"), "{}\n");
+        try {
+            assertEquals(tempDir.resolve("movies.jsonl"), service.resolveImportFile("movies.jsonl"));
+            assertThrows(IllegalArgumentException.class,
+                () -> service.resolveImportFile("../" + outside.getFileName()));
+            assertThrows(IllegalArgumentException.class, () -> service.resolveImportFile(outside.toString()));
+            assertThrows(IllegalArgumentException.class, () -> service.resolveImportFile("missing.jsonl"));
+        } finally {
+            Files.deleteIfExists(outside);
+        }
+    }
+
+    private void assertResumes(Path file) {
+        failAfter = 4;
+        ImportProgress first = service.importFile(file, 0, false);
+        assertEquals(ImportProgress.Status.FAILED, first.status());
+        assertEquals(ids(0, 4), imported);
+
+        failAfter = Integer.MAX_VALUE;
+        ImportProgress second = service.importFile(file, first.resumeOffset(), false);
+
+        assertEquals(ImportProgress.Status.COMPLETED, second.status());
+        assertEquals(ids(0, COUNT), imported);
+        assertEquals(COUNT - 4, second.documents());
+    }
+
+    private Path writeJsonl(String name, boolean gzip) throws IOException {
+        Path file = tempDir.resolve(name);
+        try (OutputStream out = gzip ? new GZIPOutputStream(Files.newOutputStream(file)) : Files.newOutputStream(file)) {
+            for (int i = 0; i < COUNT; i++) {
+                String line = "{\"aid\":\"movie_" + i + "\",\"title\":\"影片 " + i + "\"}\n";
+                out.write(line.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return file;
+    }
+
+    private static List<String> ids(int from, int to) {
+        List<String> ids = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            ids.add("movie_" + i);
+        }
+        return ids;
+    }
+
+    /**
+     * 逐条记录文档并回报进度，处理完 failAfter 条后抛出异常
+     */
+    private final class RecordingElasticsearchService extends ElasticsearchService {
+        private RecordingElasticsearchService() {
+            super(null, null, null, null, null, null, null, null, null);
+        }
+
+        @Override
+        public BulkIngestPipeline.Result bulkIndex(Iterator<Map<String, Object>> documents,
+                                                   BulkIngestPipeline.ProgressListener listener) {
+            long count = 0;
+            while (documents.hasNext()) {
+                if (count == failAfter) {
+                    throw new RuntimeException("ES 不可用");
+                }
+                imported.add(String.valueOf(documents.next().get("aid")));
+                count++;
+                listener.onProgress(count, count, 0);
+            }
+            return new BulkIngestPipeline.Result(count, count, 0, 0, 0, 0);
+        }
+    }
+}
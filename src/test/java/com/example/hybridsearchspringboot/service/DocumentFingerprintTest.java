@@ -0,0 +1,62 @@
+package com.example.hybridsearchspringboot.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class DocumentFingerprintTest {
+
+    private static final String MODEL = "paraphrase-multilingual-MiniLM-L12-v2/FP32/9f2c";
+
+    @Test
+    void contentHashIgnoresFieldOrderAndDerivedFields() {
+        Map<String, Object> a = new LinkedHashMap<>();
+        a.put("aid", "movie_001");
+        a.put("title", "流浪地球2");
+        a.put("actors", List.of("吴京", "刘德华"));
+        Map<String, Object> b = new LinkedHashMap<>();
+        b.put("actors", List.of("吴京", "刘德华"));
+        b.put("title", "流浪地球2");
+        b.put("aid", "movie_001");
+        b.put("text_vector", new float[]{0.1f, 0.2f});
+        b.put("content_hash", "stale");
+
+        assertEquals(DocumentFingerprint.contentHash(a), DocumentFingerprint.contentHash(b));
+    }
+
+    @Test
+    void metadataChangeKeepsEmbeddingHash() {
+        Map<String, Object> before = new HashMap<>(Map.of(
+            "aid", "movie_001", "title", "流浪地球2", "tags", List.of("科幻"), "updateTime", "2023-01-22"));
+        Map<String, Object> after = new HashMap<>(before);
+        after.put("updateTime", "2023-02-01");
+
+        assertNotEquals(DocumentFingerprint.contentHash(before), DocumentFingerprint.contentHash(after));
+        assertEquals(
+            DocumentFingerprint.embeddingHash(MODEL, BulkIngestPipeline.embeddingText(before)),
+            DocumentFingerprint.embeddingHash(MODEL, BulkIngestPipeline.embeddingText(after)));
+
+        after.put("tags", List.of("科幻", "灾难"));
+        assertNotEquals(
+            DocumentFingerprint.embeddingHash(MODEL, BulkIngestPipeline.embeddingText(before)),
+            DocumentFingerprint.embeddingHash(MODEL, BulkIngestPipeline.embeddingText(after)));
+    }
+
+    @Test
+    void modelChangeChangesEmbeddingHash() {
+        String text = BulkIngestPipeline.embeddingText(Map.of("title", "流浪地球2", "tags", List.of("科幻")));
+
+        assertNotEquals(
+            DocumentFingerprint.embeddingHash(MODEL, text),
+            DocumentFingerprint.embeddingHash("paraphrase-multilingual-MiniLM-L12-v2/INT8/9f2c", text));
+        assertNotEquals(
+            DocumentFingerprint.embeddingHash(MODEL, text),
+            DocumentFingerprint.embeddingHash("paraphrase-multilingual-MiniLM-L12-v2/FP32/07ab", text));
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.hybridsearchspringboot.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RankFusionTest {
+
+    private record Hit(String id, double score) {
+    }
+
+    private static List<String> ids(List<RankFusion.Fused<Hit>> fused) {
+        return fused.stream().map(f -> f.item().id()).toList();
+    }
+
+    @Test
+    void rrfRewardsDocumentsFoundByBothLegs() {
+        List<Hit> text = List.of(new Hit("a", 12.0), new Hit("b", 9.0), new Hit("c", 3.0));
+        List<Hit> vector = List.of(new Hit("c", 0.95), new Hit("b", 0.90), new Hit("d", 0.80));
+
+        List<RankFusion.Fused<Hit>> fused = RankFusion.rrf(List.of(text, vector), new double[]{1, 1}, 60,
+            Hit::id, 3);
+
+        assertEquals(List.of("c", "b", "a"), ids(fused));
+        assertEquals(1.0 / 63 + 1.0 / 61, fused.get(0).score(), 1e-12);
+        assertEquals(1.0 / 62 + 1.0 / 62, fused.get(1).score(), 1e-12);
+    }
+
+    @Test
+    void weightedNormalizesEachLegBeforeCombining() {
+        List<Hit> text = List.of(new Hit("a", 20.0), new Hit("b", 10.0));
+        List<Hit> vector = List.of(new Hit("b", 0.9), new Hit("a", 0.5));
+
+        List<RankFusion.Fused<Hit>> fused = RankFusion.weighted(List.of(text, vector), new double[]{0.3, 0.7},
+            Hit::id, Hit::score, 2);
+
+        assertEquals(List.of("b", "a"), ids(fused));
+        assertEquals(0.7, fused.get(0).score(), 1e-12);
+        assertEquals(0.3, fused.get(1).score(), 1e-12);
+    }
+
+    @Test
+    void keepsOnlyTopK() {
+        List<Hit> text = List.of(new Hit("a", 5), new Hit("b", 4), new Hit("c", 3), new Hit("d", 2));
+
+        List<RankFusion.Fused<Hit>> fused = RankFusion.rrf(List.of(text), new double[]{1}, 60,
+            Hit::id, 2);
+
+        assertEquals(List.of("a", "b"), ids(fused));
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.hybridsearchspringboot.tokenizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class WordPieceTokenizerTest {
+
+    private static final List<String> VOCAB = List.of(
+        "[PAD]", "[UNK]", "[CLS]", "[SEP]", "[MASK]",
+        "流", "浪", "地", "球", "2", "，", "!",
+        "un", "##aff", "##able", "hello", "world", "cafe", "##s"
+    );
+
+    private final WordPieceTokenizer tokenizer = new WordPieceTokenizer(VOCAB, 1, 2, 3);
+
+    private int[] encode(String text, int maxTokens) {
+        int[] out = new int[64];
+        int count = tokenizer.encode(text, out, maxTokens);
+        return Arrays.copyOf(out, count);
+    }
+
+    @Test
+    void splitsChineseWithoutSpacesPerCharacter() {
+        assertArrayEquals(new int[]{2, 5, 6, 7, 8, 9, 3}, encode("流浪地球2", 64));
+    }
+
+    @Test
+    void lowercasesStripsAccentsAndSplitsPunctuation() {
+        assertArrayEquals(new int[]{2, 15, 16, 11, 17, 3}, encode("Hello World! Café", 64));
+        assertArrayEquals(new int[]{2, 5, 10, 6, 3}, encode("流，浪", 64));
+    }
+
+    @Test
+    void appliesGreedyLongestMatchWordPiece() {
+        assertArrayEquals(new int[]{2, 12, 13, 14, 3}, encode("unaffable", 64));
+        assertArrayEquals(new int[]{2, 17, 18, 3}, encode("cafes", 64));
+    }
+
+    @Test
+    void mapsWholeWordToUnknownWhenAnyPieceIsMissing() {
+        assertArrayEquals(new int[]{2, 1, 15, 3}, encode("unaffablex hello", 64));
+        assertArrayEquals(new int[]{2, 1, 3}, encode("熊", 64));
+    }
+
+    @Test
+    void truncatesAndKeepsSeparator() {
+        assertArrayEquals(new int[]{2, 5, 6, 3}, encode("流浪地球", 4));
+        assertArrayEquals(new int[]{2, 12, 13, 3}, encode("unaffable", 4));
+    }
+}